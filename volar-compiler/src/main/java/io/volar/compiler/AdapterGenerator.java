@@ -0,0 +1,216 @@
+package io.volar.compiler;
+
+import java.util.List;
+
+import javax.lang.model.type.TypeKind;
+
+/**
+ * Write the source of a Gson TypeAdapter for a model, primitives and strings are
+ * read and written inline, other fields delegate to the adapters of the Gson instance
+ */
+final class AdapterGenerator {
+    private final String packageName;
+    private final String adapterName;
+    private final String modelName;
+    private final List<VolarModelProcessor.ModelField> fields;
+    private final StringBuilder out = new StringBuilder();
+
+    AdapterGenerator(String packageName, String adapterName, String modelName,
+                     List<VolarModelProcessor.ModelField> fields) {
+        this.packageName = packageName;
+        this.adapterName = adapterName;
+        this.modelName = modelName;
+        this.fields = fields;
+    }
+
+    String generate() {
+        if (!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+            line("");
+        }
+        line("import com.google.gson.Gson;");
+        line("import com.google.gson.TypeAdapter;");
+        line("import com.google.gson.reflect.TypeToken;");
+        line("import com.google.gson.stream.JsonReader;");
+        line("import com.google.gson.stream.JsonToken;");
+        line("import com.google.gson.stream.JsonWriter;");
+        line("");
+        line("import java.io.IOException;");
+        line("");
+        line("/**");
+        line(" * Generated by volar-compiler, do not edit");
+        line(" */");
+        line("public final class " + adapterName + " extends TypeAdapter<" + modelName + "> {");
+        line("    private final Gson gson;");
+        for (int i = 0; i < fields.size(); i++) {
+            if (kindOf(fields.get(i)) == Kind.DELEGATE) {
+                line("    private TypeAdapter<" + boxedType(fields.get(i)) + "> adapter" + i + ";");
+            }
+        }
+        line("");
+        line("    public " + adapterName + "(Gson gson) {");
+        line("        this.gson = gson;");
+        line("    }");
+        writeMethod();
+        readMethod();
+        for (int i = 0; i < fields.size(); i++) {
+            if (kindOf(fields.get(i)) == Kind.DELEGATE) {
+                String type = boxedType(fields.get(i));
+                line("");
+                line("    private TypeAdapter<" + type + "> adapter" + i + "() {");
+                line("        if (adapter" + i + " == null) {");
+                line("            adapter" + i + " = gson.getAdapter(new TypeToken<" + type + ">() {");
+                line("            });");
+                line("        }");
+                line("        return adapter" + i + ";");
+                line("    }");
+            }
+        }
+        line("}");
+        return out.toString();
+    }
+
+    private void writeMethod() {
+        line("");
+        line("    @Override");
+        line("    public void write(JsonWriter out, " + modelName + " value) throws IOException {");
+        line("        if (value == null) {");
+        line("            out.nullValue();");
+        line("            return;");
+        line("        }");
+        line("        out.beginObject();");
+        for (int i = 0; i < fields.size(); i++) {
+            VolarModelProcessor.ModelField field = fields.get(i);
+            String name = quote(field.names.get(0));
+            String access = "value." + field.fieldName;
+            switch (kindOf(field)) {
+                case PRIMITIVE:
+                    line("        out.name(" + name + ").value(" + access + ");");
+                    break;
+                case STRING:
+                    line("        if (" + access + " != null) {");
+                    line("            out.name(" + name + ").value(" + access + ");");
+                    line("        } else if (out.getSerializeNulls()) {");
+                    line("            out.name(" + name + ").nullValue();");
+                    line("        }");
+                    break;
+                default:
+                    if (field.type.getKind() == TypeKind.CHAR) {
+                        line("        out.name(" + name + ");");
+                        line("        adapter" + i + "().write(out, " + access + ");");
+                        break;
+                    }
+                    line("        if (" + access + " != null) {");
+                    line("            out.name(" + name + ");");
+                    line("            adapter" + i + "().write(out, " + access + ");");
+                    line("        } else if (out.getSerializeNulls()) {");
+                    line("            out.name(" + name + ").nullValue();");
+                    line("        }");
+                    break;
+            }
+        }
+        line("        out.endObject();");
+        line("    }");
+    }
+
+    private void readMethod() {
+        line("");
+        line("    @Override");
+        line("    public " + modelName + " read(JsonReader in) throws IOException {");
+        line("        if (in.peek() == JsonToken.NULL) {");
+        line("            in.nextNull();");
+        line("            return null;");
+        line("        }");
+        line("        " + modelName + " value = new " + modelName + "();");
+        line("        in.beginObject();");
+        line("        while (in.hasNext()) {");
+        line("            switch (in.nextName()) {");
+        for (int i = 0; i < fields.size(); i++) {
+            VolarModelProcessor.ModelField field = fields.get(i);
+            for (String name : field.names) {
+                line("                case " + quote(name) + ":");
+            }
+            line("                    if (in.peek() == JsonToken.NULL) {");
+            line("                        in.nextNull();");
+            if (kindOf(field) != Kind.PRIMITIVE && field.type.getKind() != TypeKind.CHAR) {
+                line("                        value." + field.fieldName + " = null;");
+            }
+            line("                    } else {");
+            line("                        value." + field.fieldName + " = " + readExpression(field, i) + ";");
+            line("                    }");
+            line("                    break;");
+        }
+        line("                default:");
+        line("                    in.skipValue();");
+        line("                    break;");
+        line("            }");
+        line("        }");
+        line("        in.endObject();");
+        line("        return value;");
+        line("    }");
+    }
+
+    private String readExpression(VolarModelProcessor.ModelField field, int index) {
+        switch (kindOf(field)) {
+            case STRING:
+                return "in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString()";
+            case PRIMITIVE:
+                switch (field.type.getKind()) {
+                    case BOOLEAN:
+                        return "in.peek() == JsonToken.STRING ? Boolean.parseBoolean(in.nextString()) : in.nextBoolean()";
+                    case BYTE:
+                        return "(byte) in.nextInt()";
+                    case SHORT:
+                        return "(short) in.nextInt()";
+                    case INT:
+                        return "in.nextInt()";
+                    case LONG:
+                        return "in.nextLong()";
+                    case FLOAT:
+                        return "(float) in.nextDouble()";
+                    default:
+                        return "in.nextDouble()";
+                }
+            default:
+                return "adapter" + index + "().read(in)";
+        }
+    }
+
+    private enum Kind {
+        PRIMITIVE, STRING, DELEGATE
+    }
+
+    private static Kind kindOf(VolarModelProcessor.ModelField field) {
+        TypeKind kind = field.type.getKind();
+        if (kind.isPrimitive() && kind != TypeKind.CHAR) {
+            return Kind.PRIMITIVE;
+        }
+        if (kind == TypeKind.DECLARED && String.class.getName().equals(field.type.toString())) {
+            return Kind.STRING;
+        }
+        return Kind.DELEGATE;
+    }
+
+    private static String boxedType(VolarModelProcessor.ModelField field) {
+        return field.type.getKind() == TypeKind.CHAR ? "Character" : field.type.toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private void line(String line) {
+        out.append(line).append('\n');
+    }
+}
@@ -0,0 +1,204 @@
+package io.volar.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generate a reflection free Gson TypeAdapter named {@code <Model>_VolarAdapter}
+ * for every class annotated with io.volar.annotation.VolarModel
+ */
+@SupportedAnnotationTypes(VolarModelProcessor.VOLAR_MODEL)
+public class VolarModelProcessor extends AbstractProcessor {
+    static final String VOLAR_MODEL = "io.volar.annotation.VolarModel";
+    static final String ADAPTER_SUFFIX = "_VolarAdapter";
+    private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+
+    private Elements elements;
+    private Messager messager;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@VolarModel can only be applied to classes");
+                    continue;
+                }
+                TypeElement model = (TypeElement) element;
+                List<ModelField> fields = collectFields(model);
+                if (fields != null) {
+                    writeAdapter(model, fields);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validate the model and collect its fields, including the inherited ones
+     *
+     * @param model model
+     * @return fields, null if the model is not supported
+     */
+    private List<ModelField> collectFields(TypeElement model) {
+        boolean valid = true;
+        if (model.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(model, "@VolarModel class can't be abstract");
+            valid = false;
+        }
+        if (model.getNestingKind().isNested() && !model.getModifiers().contains(Modifier.STATIC)) {
+            error(model, "@VolarModel nested class must be static");
+            valid = false;
+        }
+        if (!model.getTypeParameters().isEmpty()) {
+            error(model, "@VolarModel class can't be generic");
+            valid = false;
+        }
+        if (model.getModifiers().contains(Modifier.PRIVATE)) {
+            error(model, "@VolarModel class can't be private");
+            valid = false;
+        }
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                hasConstructor = true;
+            }
+        }
+        if (!hasConstructor) {
+            error(model, "@VolarModel class needs a non private no-arg constructor");
+            valid = false;
+        }
+
+        List<ModelField> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        TypeElement type = model;
+        while (type != null && !Object.class.getName().equals(type.getQualifiedName().toString())) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+                    error(field, "fields of @VolarModel class can't be private or final");
+                    valid = false;
+                    continue;
+                }
+                if (!modifiers.contains(Modifier.PUBLIC)
+                        && !elements.getPackageOf(type).equals(elements.getPackageOf(model))) {
+                    error(field, "inherited fields of @VolarModel class from another package must be public");
+                    valid = false;
+                    continue;
+                }
+                ModelField modelField = new ModelField(field);
+                for (String name : modelField.names) {
+                    if (!names.add(name)) {
+                        error(field, "duplicate json name \"" + name + "\" in @VolarModel class");
+                        valid = false;
+                    }
+                }
+                fields.add(modelField);
+            }
+            TypeMirror superclass = type.getSuperclass();
+            type = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return valid ? fields : null;
+    }
+
+    private void writeAdapter(TypeElement model, List<ModelField> fields) {
+        String packageName = elements.getPackageOf(model).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(model).toString();
+        String adapterName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + ADAPTER_SUFFIX;
+        String source = new AdapterGenerator(packageName, adapterName,
+                model.getQualifiedName().toString(), fields).generate();
+        String qualifiedAdapterName = packageName.isEmpty() ? adapterName : packageName + "." + adapterName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedAdapterName, model);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(model, "can't write " + qualifiedAdapterName + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * A field of the model with its json names, the first one is used when writing
+     */
+    static final class ModelField {
+        final String fieldName;
+        final TypeMirror type;
+        final List<String> names = new ArrayList<>();
+
+        private ModelField(VariableElement field) {
+            fieldName = field.getSimpleName().toString();
+            type = field.asType();
+            for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+                if (!SERIALIZED_NAME.equals(mirror.getAnnotationType().toString())) {
+                    continue;
+                }
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : mirror.getElementValues().entrySet()) {
+                    String key = entry.getKey().getSimpleName().toString();
+                    if ("value".equals(key)) {
+                        names.add(0, (String) entry.getValue().getValue());
+                    } else if ("alternate".equals(key)) {
+                        for (Object alternate : (List<?>) entry.getValue().getValue()) {
+                            names.add((String) ((AnnotationValue) alternate).getValue());
+                        }
+                    }
+                }
+            }
+            if (names.isEmpty()) {
+                names.add(fieldName);
+            }
+        }
+    }
+}
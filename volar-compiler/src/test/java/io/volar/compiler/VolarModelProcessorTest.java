@@ -0,0 +1,303 @@
+package io.volar.compiler;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compile test models with the processor, the generated adapters must read and write
+ * the same json as the reflective Gson adapters
+ */
+public class VolarModelProcessorTest {
+    private static final String VOLAR_MODEL = ""
+            + "package io.volar.annotation;\n"
+            + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+            + "@java.lang.annotation.Target(java.lang.annotation.ElementType.TYPE)\n"
+            + "public @interface VolarModel {\n"
+            + "}\n";
+    private static final String BASE = ""
+            + "package test;\n"
+            + "public class Base {\n"
+            + "    public long id;\n"
+            + "    @com.google.gson.annotations.SerializedName(\"created_at\") String createdAt;\n"
+            + "}\n";
+    private static final String ITEM = ""
+            + "package test;\n"
+            + "@io.volar.annotation.VolarModel\n"
+            + "public class Item {\n"
+            + "    String name;\n"
+            + "    double price;\n"
+            + "}\n";
+    private static final String MODEL = ""
+            + "package test;\n"
+            + "import com.google.gson.annotations.SerializedName;\n"
+            + "import java.util.List;\n"
+            + "import java.util.Map;\n"
+            + "@io.volar.annotation.VolarModel\n"
+            + "public class Model extends Base {\n"
+            + "    @SerializedName(value = \"user_name\", alternate = {\"userName\", \"login\"}) String name;\n"
+            + "    boolean enabled;\n"
+            + "    byte b;\n"
+            + "    short s;\n"
+            + "    int count;\n"
+            + "    float ratio;\n"
+            + "    double amount;\n"
+            + "    char grade;\n"
+            + "    Integer boxed;\n"
+            + "    List<Item> items;\n"
+            + "    List<String> tags;\n"
+            + "    Map<String, Integer> scores;\n"
+            + "    Item item;\n"
+            + "    transient String ignored;\n"
+            + "    static String constant = \"constant\";\n"
+            + "    public Model() {\n"
+            + "    }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesLikeReflection() throws Exception {
+        Compilation compilation = compile(VOLAR_MODEL, BASE, ITEM, MODEL);
+        Class<?> model = compilation.loadClass("test.Model");
+        String json = "{\"id\":7,\"created_at\":\"2018-05-01\",\"user_name\":\"volar\",\"enabled\":true,"
+                + "\"b\":1,\"s\":2,\"count\":3,\"ratio\":0.5,\"amount\":1.25,\"grade\":\"A\",\"boxed\":4,"
+                + "\"items\":[{\"name\":\"a\",\"price\":1.5},{\"name\":null,\"price\":2}],"
+                + "\"tags\":[\"x\",\"y\"],\"scores\":{\"x\":1},\"item\":{\"name\":\"b\",\"price\":0}}";
+        Object value = reflective(false).fromJson(json, model);
+        assertSameJson(reflective(false).toJson(value), generated(compilation, false).toJson(value));
+        assertSameJson(reflective(true).toJson(value), generated(compilation, true).toJson(value));
+    }
+
+    @Test
+    public void writesNullsLikeReflection() throws Exception {
+        Compilation compilation = compile(VOLAR_MODEL, BASE, ITEM, MODEL);
+        Object value = compilation.loadClass("test.Model").newInstance();
+        assertSameJson(reflective(false).toJson(value), generated(compilation, false).toJson(value));
+        assertSameJson(reflective(true).toJson(value), generated(compilation, true).toJson(value));
+    }
+
+    @Test
+    public void readsLikeReflection() throws Exception {
+        Compilation compilation = compile(VOLAR_MODEL, BASE, ITEM, MODEL);
+        Class<?> model = compilation.loadClass("test.Model");
+        Gson reflective = reflective(true);
+        Gson generated = generated(compilation, false);
+        assertTrue(generated.getAdapter(model).getClass().getName().endsWith(VolarModelProcessor.ADAPTER_SUFFIX));
+        String[] inputs = {
+                // alternate names, unknown fields
+                "{\"userName\":\"volar\",\"unknown\":{\"a\":[1,2]},\"id\":1}",
+                "{\"login\":\"volar\",\"created_at\":\"now\"}",
+                // null for primitives keeps the default, null for objects is set
+                "{\"count\":null,\"enabled\":null,\"grade\":null,\"boxed\":null,\"items\":null,\"user_name\":null}",
+                // lenient values, strings as numbers and booleans
+                "{\"count\":\"12\",\"amount\":\"1.5\",\"enabled\":\"true\",\"user_name\":true,\"id\":\"9\"}",
+                "{\"items\":[{\"name\":\"a\"},null],\"tags\":[],\"scores\":{}}",
+                "{}",
+        };
+        for (String input : inputs) {
+            Object expected = reflective.fromJson(input, model);
+            Object actual = generated.fromJson(input, model);
+            assertSameJson(reflective.toJson(expected), reflective.toJson(actual));
+        }
+        assertEquals(null, generated.fromJson("null", model));
+    }
+
+    @Test
+    public void missingNoArgConstructor() throws IOException {
+        String source = ""
+                + "package test;\n"
+                + "@io.volar.annotation.VolarModel\n"
+                + "public class Model {\n"
+                + "    String name;\n"
+                + "    public Model(String name) {\n"
+                + "        this.name = name;\n"
+                + "    }\n"
+                + "}\n";
+        Compilation compilation = compile(VOLAR_MODEL, source);
+        assertFalse(compilation.success);
+        assertTrue(compilation.errors(), compilation.errors().contains("needs a non private no-arg constructor"));
+        assertFalse(new File(compilation.output, "test/Model_VolarAdapter.class").exists());
+    }
+
+    @Test
+    public void unsupportedFields() throws IOException {
+        String source = ""
+                + "package test;\n"
+                + "@io.volar.annotation.VolarModel\n"
+                + "public class Model {\n"
+                + "    private String name;\n"
+                + "    @com.google.gson.annotations.SerializedName(\"count\") String first;\n"
+                + "    int count;\n"
+                + "}\n";
+        Compilation compilation = compile(VOLAR_MODEL, source);
+        assertFalse(compilation.success);
+        assertTrue(compilation.errors(), compilation.errors().contains("can't be private or final"));
+        assertTrue(compilation.errors(), compilation.errors().contains("duplicate json name \"count\""));
+    }
+
+    private static void assertSameJson(String expected, String actual) {
+        JsonParser parser = new JsonParser();
+        JsonElement expectedTree = parser.parse(expected);
+        JsonElement actualTree = parser.parse(actual);
+        assertEquals(expected + " != " + actual, expectedTree, actualTree);
+    }
+
+    private static Gson reflective(boolean serializeNulls) {
+        GsonBuilder builder = new GsonBuilder();
+        if (serializeNulls) {
+            builder.serializeNulls();
+        }
+        return builder.create();
+    }
+
+    private static Gson generated(Compilation compilation, boolean serializeNulls) {
+        GsonBuilder builder = new GsonBuilder().registerTypeAdapterFactory(new AdapterFactory(compilation.loader));
+        if (serializeNulls) {
+            builder.serializeNulls();
+        }
+        return builder.create();
+    }
+
+    private Compilation compile(String... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("no system java compiler", compiler);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        List<JavaFileObject> files = new ArrayList<>();
+        for (String source : sources) {
+            files.add(new Source(source));
+        }
+        File output = folder.newFolder();
+        String gson;
+        try {
+            gson = new File(Gson.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        List<String> options = Arrays.asList("-d", output.getPath(), "-classpath", gson);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, files);
+        task.setProcessors(Collections.singletonList(new VolarModelProcessor()));
+        boolean success = task.call();
+        fileManager.close();
+        return new Compilation(success, output, diagnostics.getDiagnostics());
+    }
+
+    /**
+     * The result of a compilation, the classes are loaded from its output
+     */
+    private static final class Compilation {
+        private final boolean success;
+        private final File output;
+        private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+        private final ClassLoader loader;
+
+        private Compilation(boolean success, File output, List<Diagnostic<? extends JavaFileObject>> diagnostics)
+                throws IOException {
+            this.success = success;
+            this.output = output;
+            this.diagnostics = diagnostics;
+            this.loader = new URLClassLoader(new URL[]{output.toURI().toURL()},
+                    VolarModelProcessorTest.class.getClassLoader());
+        }
+
+        private Class<?> loadClass(String name) throws ClassNotFoundException {
+            assertTrue(errors(), success);
+            return loader.loadClass(name);
+        }
+
+        private String errors() {
+            StringBuilder builder = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    builder.append(diagnostic.getMessage(null)).append('\n');
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Looks up the generated adapters like io.volar.converter.GeneratedAdapterFactory
+     */
+    private static final class AdapterFactory implements TypeAdapterFactory {
+        private final ClassLoader loader;
+
+        private AdapterFactory(ClassLoader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            try {
+                Class<?> adapterClass = Class.forName(type.getRawType().getName()
+                        + VolarModelProcessor.ADAPTER_SUFFIX, true, loader);
+                return (TypeAdapter<T>) adapterClass.getConstructor(Gson.class).newInstance(gson);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * In memory source, named after its public class
+     */
+    private static final class Source extends SimpleJavaFileObject {
+        private static final Pattern PACKAGE = Pattern.compile("package ([\\w.]+);");
+        private static final Pattern PUBLIC_TYPE = Pattern.compile("public (?:class|@interface) (\\w+)");
+        private final String content;
+
+        private Source(String content) {
+            super(URI.create("string:///" + className(content).replace('.', '/') + Kind.SOURCE.extension),
+                    Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+
+        private static String className(String content) {
+            Matcher packageName = PACKAGE.matcher(content);
+            Matcher simpleName = PUBLIC_TYPE.matcher(content);
+            assertTrue(packageName.find() && simpleName.find());
+            return packageName.group(1) + "." + simpleName.group(1);
+        }
+    }
+}
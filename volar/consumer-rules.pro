@@ -0,0 +1,3 @@
+# Adapters generated by volar-compiler are looked up by name
+-keep @io.volar.annotation.VolarModel class * { <init>(); }
+-keep class **_VolarAdapter { public <init>(com.google.gson.Gson); }
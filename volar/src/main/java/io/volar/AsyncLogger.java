@@ -0,0 +1,142 @@
+package io.volar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.volar.configuration.VolarConfiguration;
+import io.volar.log.LogSink;
+
+/**
+ * Logs go to a bounded ring buffer and a single writer thread drains it to the sinks,
+ * the request threads never wait for the sinks. When the buffer is full the log is dropped
+ * and counted, non error logs can be sampled per category
+ */
+final class AsyncLogger {
+    private static final int MAX_BATCH = 64;
+
+    private final List<LogSink> sinks;
+    private final ArrayBlockingQueue<LogEntry> buffer;
+    private final float[] samplingRates;
+    private final AtomicLong[] sampleCounters;
+    private final AtomicLong[] droppedCounters;
+
+    private volatile Thread writer;
+
+    AsyncLogger(VolarConfiguration configuration) {
+        sinks = configuration.getLogSinks();
+        buffer = new ArrayBlockingQueue<>(configuration.getLogBufferSize());
+        int categories = HttpConstant.LogCategory.values().length;
+        samplingRates = new float[categories];
+        sampleCounters = new AtomicLong[categories];
+        droppedCounters = new AtomicLong[categories];
+        for (HttpConstant.LogCategory category : HttpConstant.LogCategory.values()) {
+            samplingRates[category.ordinal()] = configuration.getLogSamplingRate(category);
+            sampleCounters[category.ordinal()] = new AtomicLong();
+            droppedCounters[category.ordinal()] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Whether a log of the category is kept, check it before building the message,
+     * error logs are always kept
+     *
+     * @param category category
+     * @param error    error or not
+     * @return kept or not
+     */
+    boolean sample(HttpConstant.LogCategory category, boolean error) {
+        float rate = samplingRates[category.ordinal()];
+        if (error || rate >= 1) {
+            return true;
+        }
+        if (rate <= 0) {
+            return false;
+        }
+        // keep exactly rate of the logs, evenly spread
+        long n = sampleCounters[category.ordinal()].getAndIncrement();
+        return (long) ((n + 1) * rate) > (long) (n * rate);
+    }
+
+    /**
+     * Put the log into the buffer, dropped if it is full
+     *
+     * @param category category
+     * @param priority android log priority
+     * @param tag      tag
+     * @param message  message
+     */
+    void log(HttpConstant.LogCategory category, int priority, String tag, String message) {
+        if (!buffer.offer(new LogEntry(System.currentTimeMillis(), priority, tag, message))) {
+            droppedCounters[category.ordinal()].incrementAndGet();
+            return;
+        }
+        if (writer == null) {
+            startWriter();
+        }
+    }
+
+    long getDroppedCount(HttpConstant.LogCategory category) {
+        return droppedCounters[category.ordinal()].get();
+    }
+
+    long getDroppedCount() {
+        long count = 0;
+        for (AtomicLong counter : droppedCounters) {
+            count += counter.get();
+        }
+        return count;
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "volar-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void drain() {
+        List<LogEntry> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch, MAX_BATCH - 1);
+            for (LogSink sink : sinks) {
+                try {
+                    for (LogEntry entry : batch) {
+                        sink.write(entry.time, entry.priority, entry.tag, entry.message);
+                    }
+                    sink.flush();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private static final class LogEntry {
+        private final long time;
+        private final int priority;
+        private final String tag;
+        private final String message;
+
+        private LogEntry(long time, int priority, String tag, String message) {
+            this.time = time;
+            this.priority = priority;
+            this.tag = tag;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.volar;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Bounded LRU cache of the parsed request urls, so the url strings the app passes
+ * again and again are parsed once, invalid urls are not cached
+ */
+final class BaseUrlCache {
+    private final LinkedHashMap<String, HttpUrl> urls;
+
+    BaseUrlCache(final int maxSize) {
+        urls = new LinkedHashMap<String, HttpUrl>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HttpUrl> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the parsed url
+     *
+     * @param url url
+     * @return parsed url, null if invalid
+     */
+    HttpUrl get(String url) {
+        HttpUrl httpUrl;
+        synchronized (this) {
+            httpUrl = urls.get(url);
+        }
+        if (httpUrl == null) {
+            httpUrl = HttpUrl.parse(url);
+            if (httpUrl != null) {
+                synchronized (this) {
+                    urls.put(url, httpUrl);
+                }
+            }
+        }
+        return httpUrl;
+    }
+}
@@ -0,0 +1,85 @@
+package io.volar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tag indexed registry of the requests not finished yet, including the ones
+ * still waiting in the work queue before any OkHttp call exists
+ */
+final class CallRegistry {
+    private final Map<Object, Set<Cancelable>> calls = new HashMap<>();
+
+    /**
+     * Something can be canceled by tag
+     */
+    interface Cancelable {
+        void cancel();
+    }
+
+    void register(Object tag, Cancelable cancelable) {
+        if (tag == null) {
+            return;
+        }
+        synchronized (calls) {
+            Set<Cancelable> set = calls.get(tag);
+            if (set == null) {
+                set = new HashSet<>();
+                calls.put(tag, set);
+            }
+            set.add(cancelable);
+        }
+    }
+
+    void unregister(Object tag, Cancelable cancelable) {
+        if (tag == null) {
+            return;
+        }
+        synchronized (calls) {
+            Set<Cancelable> set = calls.get(tag);
+            if (set != null) {
+                set.remove(cancelable);
+                if (set.isEmpty()) {
+                    calls.remove(tag);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancel everything registered with the tag
+     *
+     * @param tag tag
+     */
+    void cancel(Object tag) {
+        if (tag == null) {
+            return;
+        }
+        Set<Cancelable> set;
+        synchronized (calls) {
+            set = calls.remove(tag);
+        }
+        if (set != null) {
+            for (Cancelable cancelable : set) {
+                cancelable.cancel();
+            }
+        }
+    }
+
+    void cancelAll() {
+        List<Cancelable> all = new ArrayList<>();
+        synchronized (calls) {
+            for (Set<Cancelable> set : calls.values()) {
+                all.addAll(set);
+            }
+            calls.clear();
+        }
+        for (Cancelable cancelable : all) {
+            cancelable.cancel();
+        }
+    }
+}
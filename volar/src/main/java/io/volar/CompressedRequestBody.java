@@ -0,0 +1,136 @@
+package io.volar;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import io.volar.configuration.RequestCompression;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Compress the body while it is written to the sink, counting the original
+ * and the compressed length of the last write
+ */
+final class CompressedRequestBody extends RequestBody {
+    private final RequestBody body;
+    private final String encoding;
+
+    private volatile long originalLength;
+    private volatile long compressedLength;
+
+    private CompressedRequestBody(RequestBody body, String encoding) {
+        this.body = body;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Wrap the body if it is a text or json body matching the compression
+     *
+     * @param body        body
+     * @param compression compression
+     * @return compressed body or the original body
+     */
+    static RequestBody wrap(RequestBody body, RequestCompression compression) {
+        if (body == null || compression == null || compression.getEncoding() == null) {
+            return body;
+        }
+        if (!isCompressible(body.contentType())) {
+            return body;
+        }
+        long contentLength;
+        try {
+            contentLength = body.contentLength();
+        } catch (IOException e) {
+            contentLength = -1;
+        }
+        // bodies of unknown length, like streamed json, are compressed
+        if (contentLength != -1 && contentLength < compression.getThreshold()) {
+            return body;
+        }
+        return new CompressedRequestBody(body, compression.getEncoding());
+    }
+
+    private static boolean isCompressible(MediaType contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String subtype = contentType.subtype();
+        return "text".equals(contentType.type()) || "json".equals(subtype) || subtype.endsWith("+json");
+    }
+
+    String getEncoding() {
+        return encoding;
+    }
+
+    long getOriginalLength() {
+        return originalLength;
+    }
+
+    long getCompressedLength() {
+        return compressedLength;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return body.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        // unknown until compressed
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        CountingSink compressedSink = new CountingSink(sink, false);
+        Sink encodingSink;
+        if (RequestCompression.GZIP.equals(encoding)) {
+            encodingSink = new GzipSink(compressedSink);
+        } else {
+            encodingSink = new DeflaterSink(compressedSink, new Deflater());
+        }
+        CountingSink originalSink = new CountingSink(encodingSink, true);
+        BufferedSink bufferedSink = Okio.buffer(originalSink);
+        body.writeTo(bufferedSink);
+        // finishes the compression, the sink of the call is left open
+        bufferedSink.close();
+        originalLength = originalSink.count;
+        compressedLength = compressedSink.count;
+    }
+
+    /**
+     * Count the bytes going through
+     */
+    private static final class CountingSink extends ForwardingSink {
+        private final boolean closeDelegate;
+        private long count;
+
+        private CountingSink(Sink delegate, boolean closeDelegate) {
+            super(delegate);
+            this.closeDelegate = closeDelegate;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closeDelegate) {
+                super.close();
+            } else {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            count += byteCount;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package io.volar;
+
+import java.net.Proxy;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.volar.configuration.VolarConfiguration;
+import okhttp3.OkHttpClient;
+
+/**
+ * Bounded LRU cache of the OkHttpClients derived from the root client for separate configurations,
+ * keyed by the effective OkHttp settings of the configuration
+ */
+final class DerivedClientCache {
+    private final LinkedHashMap<Key, OkHttpClient> clients;
+
+    DerivedClientCache(final int maxSize) {
+        clients = new LinkedHashMap<Key, OkHttpClient>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, OkHttpClient> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    synchronized OkHttpClient get(VolarConfiguration configuration) {
+        return clients.get(new Key(configuration));
+    }
+
+    synchronized OkHttpClient put(VolarConfiguration configuration, OkHttpClient client) {
+        Key key = new Key(configuration);
+        OkHttpClient existing = clients.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        clients.put(key, client);
+        return client;
+    }
+
+    synchronized int size() {
+        return clients.size();
+    }
+
+    /**
+     * The settings {@link Volar} applies to an OkHttpClient.Builder,
+     * objects without a value semantic are compared by identity
+     */
+    private static final class Key {
+        private final long connectTimeout;
+        private final long readTimeout;
+        private final long writeTimeout;
+        private final boolean retryOnConnectionFailure;
+        private final boolean followRedirects;
+        private final boolean followSslRedirects;
+        private final boolean trustAllHttps;
+        private final Proxy proxy;
+        private final Object cache;
+        private final Object dns;
+        private final Object cookieJar;
+        private final Object hostnameVerifier;
+        private final Object sslSocketFactory;
+        private final Object x509TrustManager;
+        private final List<?> interceptors;
+        private final List<?> networkInterceptors;
+
+        private Key(VolarConfiguration configuration) {
+            connectTimeout = configuration.getConnectTimeout();
+            readTimeout = configuration.getReadTimeout();
+            writeTimeout = configuration.getWriteTimeout();
+            retryOnConnectionFailure = configuration.isRetryOnConnectionFailure();
+            followRedirects = configuration.isFollowRedirects();
+            followSslRedirects = configuration.isFollowSslRedirects();
+            trustAllHttps = configuration.isTrustAllHttps();
+            proxy = configuration.getProxy();
+            cache = configuration.getCache();
+            dns = configuration.getDns();
+            cookieJar = configuration.getCookieJar();
+            hostnameVerifier = configuration.getHostnameVerifier();
+            interceptors = configuration.getInterceptors();
+            networkInterceptors = configuration.getNetworkInterceptors();
+            if (configuration.getSslSocketFactoryParams() != null) {
+                sslSocketFactory = configuration.getSslSocketFactoryParams().getSslSocketFactory();
+                x509TrustManager = configuration.getSslSocketFactoryParams().getX509TrustManager();
+            } else {
+                sslSocketFactory = null;
+                x509TrustManager = null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return connectTimeout == key.connectTimeout
+                    && readTimeout == key.readTimeout
+                    && writeTimeout == key.writeTimeout
+                    && retryOnConnectionFailure == key.retryOnConnectionFailure
+                    && followRedirects == key.followRedirects
+                    && followSslRedirects == key.followSslRedirects
+                    && trustAllHttps == key.trustAllHttps
+                    && (proxy == null ? key.proxy == null : proxy.equals(key.proxy))
+                    && cache == key.cache
+                    && dns == key.dns
+                    && cookieJar == key.cookieJar
+                    && hostnameVerifier == key.hostnameVerifier
+                    && sslSocketFactory == key.sslSocketFactory
+                    && x509TrustManager == key.x509TrustManager
+                    && interceptors.equals(key.interceptors)
+                    && networkInterceptors.equals(key.networkInterceptors);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (connectTimeout ^ (connectTimeout >>> 32));
+            result = 31 * result + (int) (readTimeout ^ (readTimeout >>> 32));
+            result = 31 * result + (int) (writeTimeout ^ (writeTimeout >>> 32));
+            result = 31 * result + (retryOnConnectionFailure ? 1 : 0);
+            result = 31 * result + (followRedirects ? 1 : 0);
+            result = 31 * result + (followSslRedirects ? 1 : 0);
+            result = 31 * result + (trustAllHttps ? 1 : 0);
+            result = 31 * result + (proxy != null ? proxy.hashCode() : 0);
+            result = 31 * result + System.identityHashCode(cache);
+            result = 31 * result + System.identityHashCode(dns);
+            result = 31 * result + System.identityHashCode(cookieJar);
+            result = 31 * result + System.identityHashCode(hostnameVerifier);
+            result = 31 * result + System.identityHashCode(sslSocketFactory);
+            result = 31 * result + System.identityHashCode(x509TrustManager);
+            result = 31 * result + interceptors.hashCode();
+            result = 31 * result + networkInterceptors.hashCode();
+            return result;
+        }
+    }
+}
@@ -21,7 +21,7 @@ import okhttp3.Response;
  * Author: LiShen
  * Time: 2018/8/1 14:23
  */
-class DownloadRequest {
+class DownloadRequest implements CallRegistry.Cancelable {
     private String url;
     private File saveFolder;
     private String fileName;
@@ -29,66 +29,140 @@ class DownloadRequest {
     private boolean useIndependentOkHttpClient;
     private OkHttpClient okHttpClient;
     private DownloadCallback callback;
+    private Object tag;
+    private HttpConstant.Priority priority;
+    private volatile boolean canceled;
+    private volatile Call call;
     private long startTime;
 
+    /**
+     * Cancel the download
+     */
+    @Override
+    public void cancel() {
+        canceled = true;
+        Call call = this.call;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Create the call and register it by tag
+     */
+    private Call newCall() {
+        Request.Builder requestBuilder = new Request.Builder().url(url);
+        if (tag != null) {
+            requestBuilder.tag(tag);
+        }
+        Call call = okHttpClient.newCall(requestBuilder.build());
+        this.call = call;
+        Volar.getDefault().getCallRegistry().register(tag, this);
+        if (canceled) {
+            call.cancel();
+        }
+        return call;
+    }
+
     private void execute() {
         startTime = System.currentTimeMillis();
-        if (TextUtils.isEmpty(url)) {
+        File destination;
+        try {
+            destination = prepareDestination();
+        } catch (IOException e) {
             if (callback != null) {
-                callback.onFinish(false, null, costTime(), "can't download from a EMPTY url!");
+                callback.onFinish(false, null, costTime(), e.getMessage());
             }
             return;
         }
+        executeDownload(destination);
+    }
+
+    /**
+     * Download in the calling thread, only {@link DownloadCallback#onProgress(int)} will be called
+     *
+     * @return response, the data is the downloaded file
+     */
+    private HttpResponse<File> executeSync() {
+        startTime = System.currentTimeMillis();
+        HttpResponse<File> httpResponse = new HttpResponse<>();
+        httpResponse.url = url;
+        try {
+            File destination = prepareDestination();
+            Call downloadCall = newCall();
+            httpResponse.call = downloadCall;
+            refreshProgress(0);
+            Response response = downloadCall.execute();
+            httpResponse.response = response;
+            httpResponse.code = response.code();
+            httpResponse.message = response.message();
+            httpResponse.headers = response.headers();
+            httpResponse.success = response.isSuccessful();
+            if (httpResponse.success) {
+                writeToFile(response, destination);
+                httpResponse.setResponseData(destination);
+            } else {
+                response.close();
+            }
+        } catch (Exception e) {
+            httpResponse.exception = e;
+            httpResponse.setError(HttpConstant.Code.NETWORK_ERROR);
+            httpResponse.message = "download failed, error: " + e.getMessage();
+        }
+        if (httpResponse.call != null) {
+            httpResponse.canceled = httpResponse.call.isCanceled();
+            Volar.getDefault().getCallRegistry().unregister(tag, this);
+        }
+        httpResponse.requestCostTime = costTime();
+        return httpResponse;
+    }
+
+    /**
+     * Check the save folder and get the destination file
+     *
+     * @return destination
+     * @throws IOException with the failure message
+     */
+    private File prepareDestination() throws IOException {
+        if (TextUtils.isEmpty(url)) {
+            throw new IOException("can't download from a EMPTY url!");
+        }
         try {
             if (saveFolder.exists()) {
                 if (saveFolder.isDirectory() && saveFolder.canWrite()) {
                     File destination = new File(saveFolder.getPath() + File.separator + fileName);
                     if (destination.exists()) {
                         if (deleteFileAlreadyExist) {
-                            boolean result = destination.delete();
-                            if (result) {
-                                executeDownload(destination);
+                            if (!destination.delete()) {
+                                throw new IOException("can't delete the file already exist!");
                             }
                         } else {
                             fileName = System.currentTimeMillis() + "_" + fileName;
                             destination = new File(saveFolder.getPath() + File.separator + fileName);
-                            executeDownload(destination);
                         }
-                    } else {
-                        executeDownload(destination);
-                    }
-                } else {
-                    if (callback != null) {
-                        callback.onFinish(false, null, costTime(), "can't download into a wrong folder!");
-                    }
-                }
-            } else {
-                boolean result = saveFolder.mkdirs();
-                if (result) {
-                    executeDownload(new File(saveFolder.getPath() + File.separator + fileName));
-                } else {
-                    if (callback != null) {
-                        callback.onFinish(false, null, costTime(), "can't download into a wrong folder!");
                     }
+                    return destination;
                 }
+            } else if (saveFolder.mkdirs()) {
+                return new File(saveFolder.getPath() + File.separator + fileName);
             }
-        } catch (Exception e) {
-            if (callback != null) {
-                callback.onFinish(false, null, costTime(), "can't download into a wrong folder!");
-            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception ignore) {
         }
+        throw new IOException("can't download into a wrong folder!");
     }
 
     /**
      * Execute the download
      */
     private void executeDownload(final File destination) {
-        Request request = new Request.Builder().url(url).build();
-        Call downloadCall = okHttpClient.newCall(request);
+        Call downloadCall = newCall();
         refreshProgress(0);
-        downloadCall.enqueue(new Callback() {
+        Volar.getDefault().getRequestScheduler().enqueue(downloadCall, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
+                Volar.getDefault().getCallRegistry().unregister(tag, DownloadRequest.this);
                 if (e != null) {
                     if (callback != null)
                         callback.onFinish(false, null, costTime(), "download failed, error: " + e.getMessage());
@@ -100,44 +174,55 @@ class DownloadRequest {
 
             @Override
             public void onResponse(Call call, Response response) {
-                InputStream is = null;
-                byte[] buf = new byte[4096];
-                int len;
-                FileOutputStream fos = null;
                 try {
-                    is = response.body().byteStream();
-                    double total = response.body().contentLength();
-                    fos = new FileOutputStream(destination);
-                    long sum = 0;
-                    while ((len = is.read(buf)) != -1) {
-                        fos.write(buf, 0, len);
-                        sum += len;
-                        int progress = (int) (sum * 1.0d / total * 100d);
-                        refreshProgress(progress);
-                    }
-                    fos.flush();
-                    refreshProgress(100);
+                    writeToFile(response, destination);
                     if (callback != null)
                         callback.onFinish(true, destination, costTime(), "download success");
                 } catch (Exception e) {
                     if (callback != null)
                         callback.onFinish(false, null, costTime(), "download failed, error: " + e.getMessage());
                 } finally {
-                    try {
-                        if (is != null) {
-                            is.close();
-                        }
-                    } catch (Exception ignore) {
-                    }
-                    try {
-                        if (fos != null) {
-                            fos.close();
-                        }
-                    } catch (Exception ignore) {
-                    }
+                    Volar.getDefault().getCallRegistry().unregister(tag, DownloadRequest.this);
+                }
+            }
+        }, priority);
+    }
+
+    /**
+     * Write the response body into the destination and refresh the progress
+     */
+    private void writeToFile(Response response, File destination) throws IOException {
+        InputStream is = null;
+        byte[] buf = new byte[4096];
+        int len;
+        FileOutputStream fos = null;
+        try {
+            is = response.body().byteStream();
+            double total = response.body().contentLength();
+            fos = new FileOutputStream(destination);
+            long sum = 0;
+            while ((len = is.read(buf)) != -1) {
+                fos.write(buf, 0, len);
+                sum += len;
+                int progress = (int) (sum * 1.0d / total * 100d);
+                refreshProgress(progress);
+            }
+            fos.flush();
+            refreshProgress(100);
+        } finally {
+            try {
+                if (is != null) {
+                    is.close();
                 }
+            } catch (Exception ignore) {
             }
-        });
+            try {
+                if (fos != null) {
+                    fos.close();
+                }
+            } catch (Exception ignore) {
+            }
+        }
     }
 
     private void refreshProgress(int progress) {
@@ -158,6 +243,8 @@ class DownloadRequest {
     private DownloadRequest(DownloadRequestBuilder builder) {
         url = builder.url;
         callback = builder.callback;
+        tag = builder.tag;
+        priority = builder.priority;
         deleteFileAlreadyExist = builder.deleteFileAlreadyExist;
 
         fileName = builder.fileName;
@@ -198,6 +285,8 @@ class DownloadRequest {
         private boolean deleteFileAlreadyExist;
         private OkHttpClient okHttpClient;
         private DownloadCallback callback;
+        private Object tag;
+        private HttpConstant.Priority priority = HttpConstant.Priority.NORMAL;
 
         DownloadRequestBuilder(String url) {
             this.url = url;
@@ -228,6 +317,30 @@ class DownloadRequest {
             return this;
         }
 
+        /**
+         * Tag to cancel the download with {@link Volar#cancelCall(Object)}
+         *
+         * @param val tag
+         * @return builder
+         */
+        public DownloadRequestBuilder tag(Object val) {
+            tag = val;
+            return this;
+        }
+
+        /**
+         * Higher priority requests overtake the queued lower priority ones, default normal
+         *
+         * @param val priority
+         * @return builder
+         */
+        public DownloadRequestBuilder priority(HttpConstant.Priority val) {
+            if (val != null) {
+                priority = val;
+            }
+            return this;
+        }
+
         public DownloadRequestBuilder deleteFileAlreadyExist(boolean val) {
             deleteFileAlreadyExist = val;
             return this;
@@ -236,5 +349,14 @@ class DownloadRequest {
         public void execute() {
             new DownloadRequest(this).execute();
         }
+
+        /**
+         * Download in the calling thread and return the response, never call it in main thread
+         *
+         * @return response, the data is the downloaded file
+         */
+        public HttpResponse<File> executeSync() {
+            return new DownloadRequest(this).executeSync();
+        }
     }
 }
\ No newline at end of file
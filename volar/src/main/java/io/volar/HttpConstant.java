@@ -10,6 +10,15 @@ public final class HttpConstant {
     public static final long DEFAULT_CONNECT_TIMEOUT = 15 * 1000;
     public static final long DEFAULT_READ_TIMEOUT = 45 * 1000;
     public static final long DEFAULT_WRITE_TIMEOUT = 45 * 1000;
+    public static final int DEFAULT_WORKER_POOL_SIZE =
+            Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+    public static final int DEFAULT_WORKER_QUEUE_SIZE = 256;
+    public static final int DEFAULT_DERIVED_CLIENT_CACHE_SIZE = 8;
+    public static final int DEFAULT_BASE_URL_CACHE_SIZE = 64;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+    public static final int DEFAULT_ELEMENT_BATCH_SIZE = 100;
+    public static final int DEFAULT_LOG_BUFFER_SIZE = 1024;
 
     enum Method {
         GET, POST, PUT, DELETE, HEAD, PATCH
@@ -19,12 +28,56 @@ public final class HttpConstant {
         V, I, D, W, E
     }
 
+    public enum LogCategory {
+        REQUEST, PARAMS, HEADERS, RESPONSE, RESPONSE_BODY
+    }
+
+    public enum Priority {
+        LOW, NORMAL, HIGH
+    }
+
+    public enum CachePolicy {
+        /**
+         * Always go to the network, caches are only written
+         */
+        NETWORK_ONLY,
+        /**
+         * Memory cache, then the disk cache, never go to the network
+         */
+        CACHE_ONLY,
+        /**
+         * Memory cache, then the disk cache even if stale, then the network
+         */
+        CACHE_FIRST,
+        /**
+         * Network, if it fails the memory or disk cache even if stale
+         */
+        NETWORK_FIRST,
+        /**
+         * Deliver the memory or disk cache even if stale right away, then refresh from the network
+         * and deliver again if the content changed
+         */
+        STALE_WHILE_REVALIDATE
+    }
+
+    public enum ResponseSource {
+        NETWORK, MEMORY_CACHE, DISK_CACHE,
+        /**
+         * The server answered 304, the response is from the revalidation store
+         */
+        REVALIDATED
+    }
+
     static final class ParseType {
         static final int PARSE_TYPE_STRING = 0;
         static final int PARSE_TYPE_JSON = 1;
         static final int PARSE_TYPE_JSON_ARRAY = 2;
         static final int PARSE_TYPE_OBJECT = 3;
         static final int PARSE_TYPE_OBJECT_LIST = 4;
+        static final int PARSE_TYPE_BINARY = 5;
+        static final int PARSE_TYPE_BYTES = 6;
+        static final int PARSE_TYPE_STREAM = 7;
+        static final int PARSE_TYPE_ELEMENTS = 8;
     }
 
     public static final class ContentType {
@@ -34,6 +87,7 @@ public final class HttpConstant {
         public static final String TEXT_XML = "text/xml; charset=utf-8";
         public static final String JSON = "application/json; charset=utf-8";
         public static final String OCTET_STREAM = "application/octet-stream";
+        public static final String PROTOBUF = "application/x-protobuf";
         public static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
         public static final String MULTI_PART = "multipart/form-data";
     }
@@ -9,10 +9,11 @@ import java.net.URLEncoder;
 import java.util.List;
 import java.util.Map;
 
-import io.volar.util.JSON;
+import io.volar.converter.Converter;
 import io.volar.util.arraymap.VolarArrayMap;
 import okhttp3.FormBody;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
@@ -30,6 +31,8 @@ public final class HttpParams {
     private VolarArrayMap<String, String> formParamsMap;
     // priority 3
     private String paramsString;
+    // priority 4
+    private Object paramsObject;
     // priority 5
     private VolarArrayMap<String, Object> paramsMap;
     // content type
@@ -111,6 +114,21 @@ public final class HttpParams {
         this.requestBody = requestBody;
     }
 
+    /**
+     * Set binary body, like a serialized protobuf message
+     *
+     * @param body        bytes
+     * @param contentType content type, like {@link HttpConstant.ContentType#PROTOBUF}
+     */
+    public void setBinaryBody(byte[] body, String contentType) {
+        if (body != null) {
+            if (TextUtils.isEmpty(contentType)) {
+                contentType = HttpConstant.ContentType.OCTET_STREAM;
+            }
+            setRequestBody(RequestBody.create(MediaType.parse(contentType), body));
+        }
+    }
+
     /**
      * Put key value params into request
      *
@@ -194,19 +212,24 @@ public final class HttpParams {
      * @param paramsJsonString json string
      */
     public void setParamsJsonString(String paramsJsonString) {
-        if (paramsJsonString != null)
+        if (paramsJsonString != null) {
             paramsString = paramsJsonString;
+            paramsObject = null;
+        }
         setTextBodyContentType(HttpConstant.ContentType.JSON);
     }
 
     /**
-     * Set object params into json string
+     * Set object params as json body, it is serialized when the body is written
      *
      * @param params object params
      */
     public void setParamsJson(Object params) {
-        if (params != null)
-            setParamsJsonString(JSON.toJSONString(params));
+        if (params != null) {
+            paramsObject = params;
+            paramsString = "";
+            setTextBodyContentType(HttpConstant.ContentType.JSON);
+        }
     }
 
     /**
@@ -215,8 +238,10 @@ public final class HttpParams {
      * @param paramsString
      */
     public void setParamsString(String paramsString) {
-        if (paramsString != null)
+        if (paramsString != null) {
             this.paramsString = paramsString;
+            paramsObject = null;
+        }
         setTextBodyContentType(HttpConstant.ContentType.TEXT_PLAIN);
     }
 
@@ -260,8 +285,11 @@ public final class HttpParams {
         if (!TextUtils.isEmpty(paramsString)) {
             return paramsString;
         }
+        if (paramsObject != null) {
+            return Volar.getDefault().getConfiguration().getConverter().toJson(paramsObject);
+        }
         if (paramsMap.size() > 0) {
-            return JSON.toJSONString(paramsMap);
+            return Volar.getDefault().getConfiguration().getConverter().toJson(paramsMap);
         }
         return paramsString;
     }
@@ -282,16 +310,17 @@ public final class HttpParams {
      * @return url with params
      */
     String generateUrlWithParams(String url) {
-        if (paramsMap.size() == 0) {
+        int size = paramsMap.size();
+        if (size == 0) {
             return url;
         }
         StringBuilder paramsUrl = new StringBuilder("?");
         String key;
         Object value;
         String valueStr;
-        for (int i = 0; i < paramsMap.keySet().size(); i++) {
+        for (int i = 0; i < size; i++) {
             key = paramsMap.keyAt(i);
-            value = paramsMap.get(key);
+            value = paramsMap.valueAt(i);
             if (value != null && !(value instanceof Map) && !(value instanceof List)) {
                 valueStr = String.valueOf(value);
                 try {
@@ -305,7 +334,7 @@ public final class HttpParams {
                     e.printStackTrace();
                 }
                 paramsUrl.append(key).append("=").append(value);
-                if (i != paramsMap.size() - 1) {
+                if (i != size - 1) {
                     paramsUrl.append("&");
                 }
             }
@@ -314,11 +343,35 @@ public final class HttpParams {
     }
 
     /**
-     * Get request body
+     * Generate url with params use in GET or HEAD type, built on the parsed base url
+     * without string concatenation and reparsing
      *
+     * @param baseUrl parsed base url
+     * @return url with params
+     */
+    HttpUrl generateHttpUrlWithParams(HttpUrl baseUrl) {
+        int size = paramsMap.size();
+        if (size == 0) {
+            return baseUrl;
+        }
+        HttpUrl.Builder builder = baseUrl.newBuilder();
+        for (int i = 0; i < size; i++) {
+            Object value = paramsMap.valueAt(i);
+            if (value != null && !(value instanceof Map) && !(value instanceof List)) {
+                builder.addQueryParameter(paramsMap.keyAt(i), String.valueOf(value));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get request body, json params are streamed into the sink, or serialized once
+     * to the params string if it is needed afterwards, like logging
+     *
+     * @param keepParamsString keep the params string or not
      * @return request body
      */
-    RequestBody getRequestBody() {
+    RequestBody getRequestBody(boolean keepParamsString) {
         if (requestBody != null) {
             // already have (custom or files etc...)
             return requestBody;
@@ -335,10 +388,16 @@ public final class HttpParams {
             // json string body direct
             requestBody = RequestBody.create(MediaType.parse(textBodyContentType), paramsString);
             return requestBody;
-        } else if (paramsMap.size() > 0) {
-            // json string body
-            paramsString = JSON.toJSONString(paramsMap);
-            requestBody = RequestBody.create(MediaType.parse(textBodyContentType), paramsString);
+        } else if (paramsObject != null || paramsMap.size() > 0) {
+            // json body
+            Object params = paramsObject != null ? paramsObject : paramsMap;
+            Converter converter = Volar.getDefault().getConfiguration().getConverter();
+            if (keepParamsString) {
+                paramsString = converter.toJson(params);
+                requestBody = RequestBody.create(MediaType.parse(textBodyContentType), paramsString);
+            } else {
+                requestBody = new JsonRequestBody(MediaType.parse(textBodyContentType), params, converter);
+            }
             return requestBody;
         } else {
             // null params
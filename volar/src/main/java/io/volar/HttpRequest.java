@@ -18,49 +18,96 @@ package io.volar;
 
 import android.text.TextUtils;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
+import io.volar.cache.MemoryCache;
+import io.volar.cache.RevalidationStore;
 import io.volar.callback.BaseCallback;
+import io.volar.callback.BinaryCallback;
+import io.volar.callback.BytesCallback;
+import io.volar.callback.ElementCallback;
 import io.volar.callback.JsonArrayCallback;
 import io.volar.callback.JsonCallback;
 import io.volar.callback.ObjectCallback;
 import io.volar.callback.ObjectListCallback;
+import io.volar.callback.StreamCallback;
 import io.volar.callback.StringCallback;
+import io.volar.configuration.EnvelopeFilter;
+import io.volar.configuration.RequestCompression;
 import io.volar.configuration.VolarConfiguration;
-import io.volar.util.JSON;
+import io.volar.converter.BinaryDecoder;
+import io.volar.converter.Converter;
+import okhttp3.CacheControl;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.HashingSource;
+import okio.Okio;
 
 /**
  * Created by LiShen on 2017/11/27.
  * Http request
  */
-class HttpRequest<T> {
+class HttpRequest<T> implements CallRegistry.Cancelable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private String url;
     private HttpConstant.Method method;
     private HttpParams httpParams;
     private BaseCallback callback;
     private Class dataClass;
+    private BinaryDecoder binaryDecoder;
+    private int elementBatchSize;
     private WeakReference<Object> tag;
     private VolarConfiguration networkConfiguration;
     private boolean useSeparateOkHttpClient = false;
+    private boolean coalesce;
+    private String coalesceKey;
+    private HttpConstant.Priority priority;
+    private boolean lazyParse;
+    private boolean decodeInBackground;
+    private RequestCompression compression;
+    private CompressedRequestBody compressedBody;
+    private long memoryCacheTtl;
+    private String memoryCacheKey;
+    private HttpConstant.CachePolicy cachePolicy;
+    private HttpResponse<T> staleResponse;
+    private boolean revalidate;
+    private String revalidationKey;
+    private RevalidationStore.Entry revalidationEntry;
+    private Request request;
 
     private HttpResponse<T> httpResponse;
+    private ResponseParser<T> responseParser;
 
     private int parseType;
+    private boolean elementsRefused;
 
     private long timeMilestone;
     private boolean executed = false;
+    private volatile boolean canceled = false;
+    private volatile Call call;
 
     private HttpRequest(HttpRequestBuilder builder) {
         url = builder.url;
@@ -69,13 +116,25 @@ class HttpRequest<T> {
         callback = builder.callback;
         parseType = builder.parseType;
         dataClass = builder.dataClass;
+        binaryDecoder = builder.binaryDecoder;
+        elementBatchSize = builder.elementBatchSize;
         tag = new WeakReference<>(builder.tag);
+        coalesce = builder.coalesce;
+        priority = builder.priority;
+        lazyParse = builder.lazyParse;
+        decodeInBackground = builder.decodeInBackground;
+        compression = builder.compression;
+        memoryCacheTtl = builder.memoryCacheTtl;
+        cachePolicy = builder.cachePolicy;
+        revalidate = builder.revalidate;
         networkConfiguration = Volar.getDefault().getConfiguration();
         if (builder.separateConfiguration != null) {
             // use separate configuration
             networkConfiguration = builder.separateConfiguration;
             useSeparateOkHttpClient = true;
         }
+        responseParser = new ResponseParser<>(parseType, dataClass,
+                networkConfiguration.getConverter(), networkConfiguration.getEnvelopeFilter());
 
         httpResponse = new HttpResponse<>();
     }
@@ -85,16 +144,155 @@ class HttpRequest<T> {
             return;
         }
         executed = true;
-        Volar.getDefault().getWorkHandler().post(new Runnable() {
+        Volar.getDefault().getCallRegistry().register(tag.get(), this);
+        Volar.getDefault().getWorkExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 executeRequest();
             }
+        }, priority, new Runnable() {
+            @Override
+            public void run() {
+                reject();
+            }
         });
     }
 
+    /**
+     * The work queue is full of requests of higher priority, fail as rejected without going
+     * to the network, light as it runs in the thread executing the requests
+     */
+    private void reject() {
+        httpResponse.url = url;
+        httpResponse.callbackType = parseType;
+        httpResponse.responseDataClass = dataClass;
+        httpResponse.exception = new RejectedExecutionException("Work queue full");
+        httpResponse.setError(HttpConstant.Code.NETWORK_ERROR);
+        Volar.getDefault().getCallRegistry().unregister(tag.get(), this);
+        postCallback(httpResponse);
+    }
+
+    /**
+     * Cancel the request, if it is still waiting in the work queue, it never goes to the network
+     */
+    @Override
+    public void cancel() {
+        canceled = true;
+        Call call = this.call;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
     private void executeRequest() {
-        String originalJsonStringBody = httpParams.getParamsString();
+        if (canceled) {
+            handleResponse(null, new IOException("Canceled"), null);
+            return;
+        }
+
+        request = prepareRequest();
+        memoryCacheKey = generateMemoryCacheKey(request);
+        if (readCache(true)) {
+            deliverResponse();
+            return;
+        }
+        sendRequest();
+    }
+
+    /**
+     * Send the prepared request, or attach it to an identical request in flight
+     */
+    private void sendRequest() {
+        Request request = addValidators(this.request);
+
+        // attach to an identical request in flight
+        if (coalesce && (method == HttpConstant.Method.GET || method == HttpConstant.Method.HEAD)
+                && parseType != HttpConstant.ParseType.PARSE_TYPE_STREAM
+                && parseType != HttpConstant.ParseType.PARSE_TYPE_ELEMENTS) {
+            coalesceKey = generateCoalesceKey(request);
+            if (Volar.getDefault().getInFlightRequests().attach(coalesceKey, this)) {
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "COALESCED WITH REQUEST IN FLIGHT: ", url);
+                return;
+            }
+        }
+
+        Call call = newCall(request);
+        this.call = call;
+        if (canceled) {
+            call.cancel();
+        }
+        timeMilestone = System.currentTimeMillis();
+
+        // execute request async
+        Volar.getDefault().getRequestScheduler().enqueue(call, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                handleResponse(null, e, call);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                handleResponse(response, null, call);
+            }
+        }, priority);
+    }
+
+    /**
+     * Execute in the calling thread, no thread switch and no callback
+     *
+     * @return response
+     */
+    private HttpResponse<T> executeSync() {
+        synchronized (this) {
+            if (executed) {
+                throw new IllegalStateException("Already executed");
+            }
+            executed = true;
+        }
+        Volar.getDefault().getCallRegistry().register(tag.get(), this);
+
+        request = prepareRequest();
+        memoryCacheKey = generateMemoryCacheKey(request);
+        if (readCache(false)) {
+            writeCaches();
+            Volar.getDefault().getCallRegistry().unregister(tag.get(), this);
+            return httpResponse;
+        }
+
+        Call call = newCall(addValidators(request));
+        this.call = call;
+        if (canceled) {
+            call.cancel();
+        }
+        timeMilestone = System.currentTimeMillis();
+        Response response = null;
+        IOException exception = null;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            exception = e;
+        }
+        processResponse(response, exception, call);
+        readFallbackCache(response);
+        writeCaches();
+        Volar.getDefault().getCallRegistry().unregister(tag.get(), this);
+        return httpResponse;
+    }
+
+    /**
+     * Run the custom filter and build the request
+     *
+     * @return request
+     */
+    private Request prepareRequest() {
+        // params are serialized for logging only when logged
+        boolean logParams = method != HttpConstant.Method.GET && method != HttpConstant.Method.HEAD
+                && Volar.getDefault().isLoggable(HttpConstant.LogCategory.PARAMS, false);
+        String originalJsonStringBody = null;
+        if (logParams && networkConfiguration.isLogParamsBeforeFilter()) {
+            originalJsonStringBody = httpParams.getParamsString();
+        }
+        boolean keepParamsString = logParams && !networkConfiguration.isLogParamsBeforeFilter();
 
         // custom filter
         if (networkConfiguration.getCustomFilter() != null) {
@@ -102,6 +300,7 @@ class HttpRequest<T> {
         }
 
         Request.Builder requestBuilder = new Request.Builder();
+        HttpUrl httpUrl = null;
 
         // tag
         if (tag.get() != null) {
@@ -111,162 +310,812 @@ class HttpRequest<T> {
         // method
         switch (method) {
             case GET:
-                url = httpParams.generateUrlWithParams(url);
+                httpUrl = generateHttpUrl();
                 requestBuilder.get();
-                Volar.getDefault().log("GET URL: " + url);
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "GET URL: ", url);
                 break;
             case DELETE:
-                requestBuilder.delete(httpParams.getRequestBody());
-                Volar.getDefault().log("DELETE URL: " + url);
+                requestBuilder.delete(compressBody(httpParams.getRequestBody(keepParamsString)));
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "DELETE URL: ", url);
                 break;
             case HEAD:
-                url = httpParams.generateUrlWithParams(url);
-                Volar.getDefault().log("HEAD URL: " + url);
+                httpUrl = generateHttpUrl();
+                requestBuilder.head();
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "HEAD URL: ", url);
                 break;
             case POST:
-                requestBuilder.post(httpParams.getRequestBody());
-                Volar.getDefault().log("POST URL: " + url);
+                requestBuilder.post(compressBody(httpParams.getRequestBody(keepParamsString)));
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "POST URL: ", url);
                 break;
             case PUT:
-                requestBuilder.put(httpParams.getRequestBody());
-                Volar.getDefault().log("PUT URL: " + url);
+                requestBuilder.put(compressBody(httpParams.getRequestBody(keepParamsString)));
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "PUT URL: ", url);
                 break;
             case PATCH:
-                requestBuilder.patch(httpParams.getRequestBody());
-                Volar.getDefault().log("PATCH URL: " + url);
+                requestBuilder.patch(compressBody(httpParams.getRequestBody(keepParamsString)));
+                Volar.getDefault().log(HttpConstant.LogCategory.REQUEST, "PATCH URL: ", url);
                 break;
         }
 
-        if (method != HttpConstant.Method.GET && method != HttpConstant.Method.HEAD) {
+        if (logParams) {
             if (networkConfiguration.isLogParamsBeforeFilter()) {
                 // log original json params
                 if (!TextUtils.isEmpty(originalJsonStringBody))
-                    Volar.getDefault().log("REQUEST PARAMS: " + originalJsonStringBody);
+                    Volar.getDefault().write(HttpConstant.LogCategory.PARAMS,
+                            "REQUEST PARAMS: " + originalJsonStringBody, false);
             } else {
                 // log json params after custom filter
                 String paramsStr = httpParams.getParamsString();
                 if (!TextUtils.isEmpty(paramsStr))
-                    Volar.getDefault().log("REQUEST PARAMS: " + paramsStr);
+                    Volar.getDefault().write(HttpConstant.LogCategory.PARAMS,
+                            "REQUEST PARAMS: " + paramsStr, false);
             }
         }
 
         // url
-        requestBuilder.url(url);
+        if (httpUrl != null) {
+            requestBuilder.url(httpUrl);
+        } else {
+            requestBuilder.url(url);
+        }
 
         // headers
         if (httpParams.getHeadersBuilder() != null) {
             Headers headers = httpParams.getHeadersBuilder().build();
             requestBuilder.headers(headers);
-            if (networkConfiguration.isLogHeader()) {
+            if (networkConfiguration.isLogHeader()
+                    && Volar.getDefault().isLoggable(HttpConstant.LogCategory.HEADERS, false)) {
                 String headersStr = headers.toString();
                 if (!TextUtils.isEmpty(headersStr))
-                    Volar.getDefault().log("REQUEST HEADERS: \n" + headersStr);
+                    Volar.getDefault().write(HttpConstant.LogCategory.HEADERS,
+                            "REQUEST HEADERS: \n" + headersStr, false);
+            }
+        }
+        if (compressedBody != null) {
+            requestBuilder.header("Content-Encoding", compressedBody.getEncoding());
+        }
+
+        return requestBuilder.build();
+    }
+
+    /**
+     * Build the url with params from the parsed base url, the url string is updated
+     *
+     * @return url, null if the base url is invalid
+     */
+    private HttpUrl generateHttpUrl() {
+        HttpUrl baseUrl = Volar.getDefault().getBaseUrlCache().get(url);
+        if (baseUrl == null) {
+            // let the request builder report the invalid url
+            url = httpParams.generateUrlWithParams(url);
+            return null;
+        }
+        HttpUrl httpUrl = httpParams.generateHttpUrlWithParams(baseUrl);
+        url = httpUrl.toString();
+        return httpUrl;
+    }
+
+    /**
+     * Compress the body with the compression of the request or the host
+     *
+     * @param body body
+     * @return compressed body or the original body
+     */
+    private RequestBody compressBody(RequestBody body) {
+        RequestCompression compression = this.compression;
+        if (compression == null) {
+            HttpUrl httpUrl = Volar.getDefault().getBaseUrlCache().get(url);
+            if (httpUrl == null) {
+                return body;
             }
+            compression = networkConfiguration.getRequestCompression(httpUrl.host());
         }
+        RequestBody requestBody = CompressedRequestBody.wrap(body, compression);
+        if (requestBody instanceof CompressedRequestBody) {
+            compressedBody = (CompressedRequestBody) requestBody;
+        }
+        return requestBody;
+    }
 
-        // custom okHttpClient
+    /**
+     * Create the call with the default or the separate okHttpClient
+     *
+     * @param request request
+     * @return call
+     */
+    private Call newCall(Request request) {
         OkHttpClient okHttpClient = Volar.getDefault().getOkHttpClient();
         if (useSeparateOkHttpClient) {
-            okHttpClient = Volar.getDefault().generateOkHttpClient(networkConfiguration);
+            okHttpClient = Volar.getDefault().getSeparateOkHttpClient(networkConfiguration);
         }
+        return okHttpClient.newCall(request);
+    }
 
-        // execute request async
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.enqueue(new Callback() {
-            @Override
-            public void onFailure(Call call, IOException e) {
-                handleResponse(null, e, call);
+    /**
+     * Identical requests share the configuration, method, url, headers and the type of the parsed data,
+     * requests of different configurations filter and parse differently
+     *
+     * @param request request
+     * @return key
+     */
+    private String generateCoalesceKey(Request request) {
+        return Integer.toHexString(System.identityHashCode(networkConfiguration))
+                + " " + request.method() + " " + request.url()
+                + "\n" + request.headers()
+                + parseType + (dataClass != null ? dataClass.getName() : "")
+                + (binaryDecoder != null ? binaryDecoder.getClass().getName() : "");
+    }
+
+    /**
+     * Memory cache key, method, url, data type and the key headers
+     *
+     * @param request request
+     * @return key, null if the request doesn't use the memory cache
+     */
+    private String generateMemoryCacheKey(Request request) {
+        if (memoryCacheTtl <= 0 || networkConfiguration.getMemoryCache() == null) {
+            return null;
+        }
+        return generateCacheKey(request, networkConfiguration.getMemoryCacheKeyHeaders());
+    }
+
+    /**
+     * Revalidation store key, method, url, data type and the key headers
+     *
+     * @param request request
+     * @return key, null if the request doesn't use the revalidation store
+     */
+    private String generateRevalidationKey(Request request) {
+        if (!revalidate || networkConfiguration.getRevalidationStore() == null
+                || cachePolicy == HttpConstant.CachePolicy.CACHE_ONLY) {
+            return null;
+        }
+        return generateCacheKey(request, networkConfiguration.getRevalidationKeyHeaders());
+    }
+
+    /**
+     * Key of the parsed response caches, only GET requests with the data kept in the response
+     *
+     * @param request    request
+     * @param keyHeaders request headers making responses differ
+     * @return key, null if the request is not cacheable
+     */
+    private String generateCacheKey(Request request, List<String> keyHeaders) {
+        if (method != HttpConstant.Method.GET
+                || parseType == HttpConstant.ParseType.PARSE_TYPE_STREAM
+                || parseType == HttpConstant.ParseType.PARSE_TYPE_ELEMENTS) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(request.method()).append(' ').append(request.url());
+        for (String name : keyHeaders) {
+            key.append('\n').append(name).append(": ").append(request.header(name));
+        }
+        key.append('\n').append(parseType);
+        if (dataClass != null) {
+            key.append(' ').append(dataClass.getName());
+        }
+        if (binaryDecoder != null) {
+            key.append(' ').append(binaryDecoder.getClass().getName());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Serve the request from the caches as the cache policy says, or prepare the request
+     * to send to the network
+     *
+     * @param async stale while revalidate delivers the stale response and goes on, sync returns it
+     * @return served or not
+     */
+    private boolean readCache(boolean async) {
+        if (cachePolicy == null) {
+            return readMemoryCache(false);
+        }
+        switch (cachePolicy) {
+            case CACHE_ONLY:
+                if (readMemoryCache(true)) {
+                    return true;
+                }
+                // the disk cache only, OkHttp answers 504 if it can't
+                request = request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
+                return false;
+            case CACHE_FIRST:
+                return readMemoryCache(true) || readDiskCache();
+            case STALE_WHILE_REVALIDATE:
+                if (!readMemoryCache(true) && !readDiskCache()) {
+                    return false;
+                }
+                if (!async) {
+                    return true;
+                }
+                staleResponse = httpResponse;
+                postCallback(staleResponse);
+                httpResponse = new HttpResponse<>();
+                return false;
+            case NETWORK_ONLY:
+                request = request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build();
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Network first, the network failed, fall back to the caches
+     *
+     * @param response network response
+     */
+    private void readFallbackCache(Response response) {
+        if (cachePolicy != HttpConstant.CachePolicy.NETWORK_FIRST || canceled
+                || (response != null && response.code() < HttpURLConnection.HTTP_INTERNAL_ERROR)) {
+            return;
+        }
+        HttpResponse<T> failedResponse = httpResponse;
+        httpResponse = new HttpResponse<>();
+        if (!readMemoryCache(true) && !readDiskCache()) {
+            httpResponse = failedResponse;
+        }
+    }
+
+    /**
+     * Take the response from the memory cache
+     *
+     * @param allowStale take the expired one or not
+     * @return hit or not
+     */
+    private boolean readMemoryCache(boolean allowStale) {
+        if (memoryCacheKey == null) {
+            return false;
+        }
+        MemoryCache memoryCache = networkConfiguration.getMemoryCache();
+        HttpResponse<T> cached = (HttpResponse<T>) (allowStale
+                ? memoryCache.getStale(memoryCacheKey) : memoryCache.get(memoryCacheKey));
+        if (cached == null) {
+            return false;
+        }
+        // lazy data stays undecoded until read, an entry failing to decode is dropped by the next hit
+        if (!cached.success || cached.isLazyDataFailed()) {
+            memoryCache.remove(memoryCacheKey);
+            return false;
+        }
+        httpResponse = cached.copy();
+        httpResponse.url = url;
+        httpResponse.source = HttpConstant.ResponseSource.MEMORY_CACHE;
+        httpResponse.setExtra(httpParams.getExtra());
+        Volar.getDefault().log(HttpConstant.LogCategory.RESPONSE, "MEMORY CACHE HIT: ", url);
+        return true;
+    }
+
+    /**
+     * Take the response from the OkHttp disk cache even if stale, never go to the network
+     *
+     * @return hit or not
+     */
+    private boolean readDiskCache() {
+        if (networkConfiguration.getCache() == null || method != HttpConstant.Method.GET
+                || parseType == HttpConstant.ParseType.PARSE_TYPE_STREAM
+                || parseType == HttpConstant.ParseType.PARSE_TYPE_ELEMENTS) {
+            return false;
+        }
+        Call call = newCall(request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build());
+        // cancelable like the network call
+        this.call = call;
+        if (canceled) {
+            call.cancel();
+        }
+        timeMilestone = System.currentTimeMillis();
+        Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            return false;
+        }
+        if (response.code() == HttpURLConnection.HTTP_GATEWAY_TIMEOUT) {
+            // not cached
+            response.close();
+            return false;
+        }
+        processResponse(response, null, call);
+        if (!httpResponse.success) {
+            httpResponse = new HttpResponse<>();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stale while revalidate, the refreshed response is delivered only if the content changed,
+     * validators are compared, then the response strings, or the body hashes if parsed without a string
+     *
+     * @return changed or not
+     */
+    private boolean isRevalidatedResponseChanged() {
+        if (!httpResponse.success) {
+            // keep the stale one delivered
+            return false;
+        }
+        String etag = header(httpResponse, "ETag");
+        String staleEtag = header(staleResponse, "ETag");
+        if (etag != null && staleEtag != null) {
+            return !etag.equals(staleEtag);
+        }
+        String lastModified = header(httpResponse, "Last-Modified");
+        String staleLastModified = header(staleResponse, "Last-Modified");
+        if (lastModified != null && staleLastModified != null) {
+            return !lastModified.equals(staleLastModified);
+        }
+        if (httpResponse.responseString != null && staleResponse.responseString != null) {
+            return !httpResponse.responseString.equals(staleResponse.responseString);
+        }
+        if (httpResponse.bodyHash != null && staleResponse.bodyHash != null) {
+            return !httpResponse.bodyHash.equals(staleResponse.bodyHash);
+        }
+        return true;
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers != null ? response.headers.get(name) : null;
+    }
+
+    /**
+     * Send the stored validators of the revalidation store, unless the request has its own
+     *
+     * @param request request
+     * @return request with validators
+     */
+    private Request addValidators(Request request) {
+        revalidationKey = generateRevalidationKey(request);
+        if (revalidationKey == null || request.header("If-None-Match") != null
+                || request.header("If-Modified-Since") != null) {
+            return request;
+        }
+        revalidationEntry = networkConfiguration.getRevalidationStore().get(revalidationKey);
+        if (revalidationEntry == null) {
+            return request;
+        }
+        Request.Builder builder = request.newBuilder();
+        if (revalidationEntry.getETag() != null) {
+            builder.header("If-None-Match", revalidationEntry.getETag());
+        }
+        if (revalidationEntry.getLastModified() != null) {
+            builder.header("If-Modified-Since", revalidationEntry.getLastModified());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Take the stored response of the revalidation store if the server answered 304
+     *
+     * @param response response
+     * @return not modified or not
+     */
+    private boolean readRevalidationStore(Response response) {
+        if (revalidationEntry == null || response == null
+                || response.code() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return false;
+        }
+        HttpResponse<T> stored = (HttpResponse<T>) revalidationEntry.getValue();
+        // lazy data stays undecoded until read
+        if (!stored.success || stored.isLazyDataFailed()) {
+            networkConfiguration.getRevalidationStore().remove(revalidationKey);
+            return false;
+        }
+        networkConfiguration.getRevalidationStore().notModified(revalidationKey);
+        httpResponse = stored.copy();
+        return true;
+    }
+
+    /**
+     * Keep the successful network or disk response in the memory cache and the revalidation store.
+     * Lazy data is kept undecoded and shared with the response delivered, it is decoded once by the
+     * first reader, the entries hold the body and the parser, not the request
+     */
+    private void writeCaches() {
+        Response response = httpResponse.response;
+        if (response == null || !httpResponse.success || (memoryCacheKey == null && revalidationKey == null)) {
+            return;
+        }
+        HttpResponse<T> cached = httpResponse.copy();
+        cached.call = null;
+        cached.response = null;
+        cached.requestCostTime = 0;
+        cached.parseDataCostTime = 0;
+        if (memoryCacheKey != null) {
+            long bodyLength = -1;
+            if (cached.responseString != null) {
+                bodyLength = cached.responseString.length();
+            } else if (response.body() != null) {
+                bodyLength = response.body().contentLength();
             }
+            networkConfiguration.getMemoryCache().put(memoryCacheKey, cached, memoryCacheTtl, bodyLength);
+        }
+        if (revalidationKey != null && httpResponse.source == HttpConstant.ResponseSource.NETWORK) {
+            networkConfiguration.getRevalidationStore().put(revalidationKey,
+                    response.header("ETag"), response.header("Last-Modified"), cached);
+        }
+    }
+
+    /**
+     * Handle the response, working in non main thread
+     */
+    private void handleResponse(Response response, Exception exception, Call call) {
+        processResponse(response, exception, call);
+        readFallbackCache(response);
+        if (lazyParse && decodeInBackground && httpResponse.success) {
+            // leave the network thread, decode in the work pool before the callback
+            Volar.getDefault().getWorkExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    httpResponse.getResponseData();
+                    deliverResponse();
+                }
+            }, priority, new Runnable() {
+                @Override
+                public void run() {
+                    // decoded when read instead
+                    deliverResponse();
+                }
+            });
+        } else {
+            deliverResponse();
+        }
+    }
+
+    /**
+     * Share the response with the attached requests and post the callbacks
+     */
+    private void deliverResponse() {
+        writeCaches();
+        Volar.getDefault().getCallRegistry().unregister(tag.get(), this);
+
+        // share the result with the identical requests attached
+        final List<HttpRequest<?>> followers;
+        if (coalesceKey != null) {
+            followers = new ArrayList<>();
+            for (HttpRequest<?> follower : Volar.getDefault().getInFlightRequests().complete(coalesceKey)) {
+                if (httpResponse.canceled && !follower.canceled) {
+                    // canceled by the owner of this request, the follower still wants its response
+                    follower.executeAgain();
+                } else {
+                    follower.receiveCoalescedResponse(httpResponse);
+                    followers.add(follower);
+                }
+            }
+        } else {
+            followers = null;
+        }
+
+        // post to main thread to callback
+        final HttpResponse<T> response = httpResponse;
+        final boolean callbackSelf = staleResponse == null || isRevalidatedResponseChanged();
+        if (!response.noNeedCallback) {
+            Volar.getDefault().getMainHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    if (callbackSelf) {
+                        callback(response);
+                    }
+                    if (followers != null) {
+                        for (HttpRequest<?> follower : followers) {
+                            follower.callback();
+                        }
+                    }
+                }
+            });
+        }
+    }
 
+    /**
+     * Post the callback of a response to main thread
+     *
+     * @param response response
+     */
+    private void postCallback(final HttpResponse<T> response) {
+        if (!response.noNeedCallback) {
+            Volar.getDefault().getMainHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    callback(response);
+                }
+            });
+        }
+    }
+
+    /**
+     * The request this one attached to was canceled, send the request already prepared on its own,
+     * the custom filter is not run again, the other followers attach to it again
+     */
+    private void executeAgain() {
+        coalesceKey = null;
+        httpResponse = new HttpResponse<>();
+        Volar.getDefault().getWorkExecutor().execute(new Runnable() {
             @Override
-            public void onResponse(Call call, Response response) throws IOException {
-                handleResponse(response, null, call);
+            public void run() {
+                if (canceled) {
+                    handleResponse(null, new IOException("Canceled"), null);
+                    return;
+                }
+                sendRequest();
+            }
+        }, priority, new Runnable() {
+            @Override
+            public void run() {
+                reject();
             }
         });
+    }
 
-        timeMilestone = System.currentTimeMillis();
+    /**
+     * Take the response of the identical request this one attached to
+     *
+     * @param leaderResponse response of the request in flight
+     */
+    private void receiveCoalescedResponse(HttpResponse<?> leaderResponse) {
+        // the coalesce key includes the parse type and the data class
+        httpResponse = (HttpResponse<T>) leaderResponse.copy();
+        httpResponse.setExtra(httpParams.getExtra());
+        if (canceled) {
+            httpResponse.canceled = true;
+            httpResponse.setError(HttpConstant.Code.NETWORK_ERROR);
+        }
+        Volar.getDefault().getCallRegistry().unregister(tag.get(), this);
     }
 
     /**
-     * Handle the response, working in non main thread
+     * Fill the http response, filter and parse data, working in non main thread
      */
-    private void handleResponse(Response response, Exception exception, Call call) {
+    private void processResponse(Response response, Exception exception, Call call) {
+        boolean notModified = readRevalidationStore(response);
         httpResponse.url = url;
         httpResponse.callbackType = parseType;
         httpResponse.response = response;
         httpResponse.exception = exception;
         httpResponse.call = call;
-        httpResponse.canceled = call.isCanceled();
+        httpResponse.canceled = canceled || (call != null && call.isCanceled());
         httpResponse.requestCostTime = System.currentTimeMillis() - timeMilestone;
         httpResponse.setExtra(httpParams.getExtra());
         httpResponse.responseDataClass = dataClass;
+        httpResponse.source = response != null && response.networkResponse() == null
+                && response.cacheResponse() != null
+                ? HttpConstant.ResponseSource.DISK_CACHE : HttpConstant.ResponseSource.NETWORK;
+        if (notModified) {
+            httpResponse.source = HttpConstant.ResponseSource.REVALIDATED;
+        }
+        if (compressedBody != null && compressedBody.getOriginalLength() > 0) {
+            httpResponse.requestCompressionRatio =
+                    (float) compressedBody.getCompressedLength() / compressedBody.getOriginalLength();
+        }
 
         timeMilestone = System.currentTimeMillis();
 
         String originalResponseString = null;
+        boolean parsedFromStream = false;
 
-        if (response != null) {
+        if (notModified) {
+            // the stored response is filtered and parsed already
+            response.close();
+        } else if (response != null) {
             httpResponse.code = response.code();
             httpResponse.message = response.message();
             httpResponse.success = response.isSuccessful();
             httpResponse.headers = response.headers();
 
             ResponseBody responseBody = response.body();
-            if (responseBody != null) {
-                try {
-                    originalResponseString = responseBody.string();
-                } catch (Exception ignore) {
-                }
+            HashingSource bodyHashing = null;
+            if (responseBody != null && cachePolicy == HttpConstant.CachePolicy.STALE_WHILE_REVALIDATE
+                    && (isParsedFromBody() || (lazyParse && !isResponseStringNeeded()))) {
+                // no response string to tell if the refreshed response changed, hash the body read
+                bodyHashing = HashingSource.sha1(responseBody.source());
+                responseBody = ResponseBody.create(responseBody.contentType(), responseBody.contentLength(),
+                        Okio.buffer(bodyHashing));
             }
-
-            if (TextUtils.isEmpty(originalResponseString)) {
-                httpResponse.setError(HttpConstant.Code.SERVER_NO_RESPONSE);
+            if (responseBody != null && isParsedFromBody()) {
+                // parse the data straight from the body, no response string
+                parsedFromStream = true;
+                if (httpResponse.success) {
+                    parseFromBody(responseBody);
+                } else {
+                    readErrorBody(responseBody);
+                }
+            } else if (responseBody != null && lazyParse && !isResponseStringNeeded()) {
+                // keep the raw body, the data is decoded when read
+                parsedFromStream = true;
+                if (httpResponse.success) {
+                    keepRawBody(responseBody);
+                } else {
+                    readErrorBody(responseBody);
+                }
             } else {
-                httpResponse.responseString = originalResponseString;
+                if (responseBody != null) {
+                    try {
+                        originalResponseString = responseBody.string();
+                    } catch (Exception ignore) {
+                    }
+                }
+
+                if (TextUtils.isEmpty(originalResponseString)) {
+                    httpResponse.setError(HttpConstant.Code.SERVER_NO_RESPONSE);
+                } else {
+                    httpResponse.responseString = originalResponseString;
+                }
+            }
+            if (bodyHashing != null) {
+                httpResponse.bodyHash = bodyHashing.hash();
             }
         } else {
             httpResponse.setError(HttpConstant.Code.NETWORK_ERROR);
         }
 
         // custom filter
-        if (networkConfiguration.getCustomFilter() != null && !TextUtils.isEmpty(httpResponse.responseString)) {
+        if (networkConfiguration.getCustomFilter() != null && !notModified
+                && !TextUtils.isEmpty(httpResponse.responseString)) {
             httpResponse = networkConfiguration.getCustomFilter().filter(httpResponse);
         }
 
         // data parse
-        if (httpResponse.success) {
-            if (!parseToData(httpResponse.responseString)) {
+        if (httpResponse.success && !parsedFromStream && !notModified) {
+            if (parseType == HttpConstant.ParseType.PARSE_TYPE_ELEMENTS) {
+                // elements of the string left by the custom filter
+                parseElements(httpResponse.responseString);
+            } else if (lazyParse) {
+                httpResponse.setDataDecoder(responseParser.decoder(httpResponse.responseString));
+            } else if (!parseToData(httpResponse.responseString) && httpResponse.success) {
                 httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
             }
         }
         httpResponse.parseDataCostTime = System.currentTimeMillis() - timeMilestone;
 
+
+        if (!Volar.getDefault().isLogEnabled()) {
+            return;
+        }
+
         // show original response or not
-        if (networkConfiguration.isLogResponseBeforeFilter()) {
-            Volar.getDefault().log("RESPONSE: " + originalResponseString, !httpResponse.success);
-        } else {
-            Volar.getDefault().log("RESPONSE: " + httpResponse.responseString, !httpResponse.success);
+        if (networkConfiguration.isLogResponseBody() && !parsedFromStream) {
+            if (networkConfiguration.isLogResponseBeforeFilter()) {
+                Volar.getDefault().log(HttpConstant.LogCategory.RESPONSE_BODY, "RESPONSE: ",
+                        originalResponseString, !httpResponse.success);
+            } else {
+                Volar.getDefault().log(HttpConstant.LogCategory.RESPONSE_BODY, "RESPONSE: ",
+                        httpResponse.responseString, !httpResponse.success);
+            }
         }
 
-        String responseLog = "RESPONSE CODE: " + httpResponse.code;
+        if (!Volar.getDefault().isLoggable(HttpConstant.LogCategory.RESPONSE, !httpResponse.success)) {
+            return;
+        }
+        StringBuilder responseLog = new StringBuilder("RESPONSE CODE: ").append(httpResponse.code);
         if (!TextUtils.isEmpty(httpResponse.message)) {
-            responseLog += "\nRESPONSE MESSAGE: " + httpResponse.message;
+            responseLog.append("\nRESPONSE MESSAGE: ").append(httpResponse.message);
         }
-        responseLog += "\nREQUEST COST TIME: " + httpResponse.requestCostTime + " ms";
+        responseLog.append("\nREQUEST COST TIME: ").append(httpResponse.requestCostTime).append(" ms");
         if (httpResponse.parseDataCostTime > 0) {
-            responseLog += "\nPARSE DATA COST TIME: " + httpResponse.parseDataCostTime + "ms";
+            responseLog.append("\nPARSE DATA COST TIME: ").append(httpResponse.parseDataCostTime).append("ms");
         }
-        responseLog += "\nURL: " + httpResponse.url;
-        Volar.getDefault().log(responseLog, !httpResponse.success);
+        responseLog.append("\nURL: ").append(httpResponse.url);
+        Volar.getDefault().write(HttpConstant.LogCategory.RESPONSE,
+                responseLog.toString(), !httpResponse.success);
+    }
 
-        // post to main thread to callback
-        if (!httpResponse.noNeedCallback) {
-            Volar.getDefault().getMainHandler().post(new Runnable() {
-                @Override
-                public void run() {
-                    callback();
-                }
-            });
+    /**
+     * Raw and binary data are always read from the body, elements are read from the body
+     * unless the custom filter needs the response string, object data is read from the body
+     * stream when nobody needs the response string, neither the custom filter nor the response log
+     *
+     * @return parse from body or not
+     */
+    private boolean isParsedFromBody() {
+        switch (parseType) {
+            case HttpConstant.ParseType.PARSE_TYPE_BINARY:
+            case HttpConstant.ParseType.PARSE_TYPE_BYTES:
+            case HttpConstant.ParseType.PARSE_TYPE_STREAM:
+                return true;
+            case HttpConstant.ParseType.PARSE_TYPE_ELEMENTS:
+                return networkConfiguration.getCustomFilter() == null;
+            case HttpConstant.ParseType.PARSE_TYPE_OBJECT:
+            case HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST:
+                return !lazyParse && !isResponseStringNeeded();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The response string is needed by the custom filter and the response log
+     *
+     * @return needed or not
+     */
+    private boolean isResponseStringNeeded() {
+        if (networkConfiguration.getCustomFilter() != null) {
+            return true;
+        }
+        return Volar.getDefault().isLogEnabled()
+                && networkConfiguration.isLogResponseBody();
+    }
+
+    /**
+     * Error bodies are never parsed, keep them as the response string for the app to read
+     *
+     * @param responseBody body
+     */
+    private void readErrorBody(ResponseBody responseBody) {
+        try {
+            httpResponse.responseString = responseBody.string();
+        } catch (Exception ignore) {
+        } finally {
+            responseBody.close();
+        }
+    }
+
+    /**
+     * Keep the raw body for lazy parse, the body is closed after
+     *
+     * @param responseBody body
+     */
+    private void keepRawBody(ResponseBody responseBody) {
+        final byte[] bytes;
+        try {
+            bytes = responseBody.bytes();
+        } catch (Exception e) {
+            httpResponse.exception = e;
+            httpResponse.setError(HttpConstant.Code.SERVER_NO_RESPONSE);
+            return;
+        } finally {
+            responseBody.close();
+        }
+        if (bytes.length == 0) {
+            httpResponse.setError(HttpConstant.Code.SERVER_NO_RESPONSE);
+            return;
+        }
+        MediaType contentType = responseBody.contentType();
+        Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        httpResponse.setDataDecoder(responseParser.decoder(bytes, charset));
+    }
+
+    /**
+     * Parse the data straight from the body, the body is closed after
+     *
+     * @param responseBody body
+     */
+    private void parseFromBody(ResponseBody responseBody) {
+        try {
+            switch (parseType) {
+                case HttpConstant.ParseType.PARSE_TYPE_BYTES:
+                    httpResponse.setResponseData((T) responseBody.bytes());
+                    return;
+                case HttpConstant.ParseType.PARSE_TYPE_STREAM:
+                    ((StreamCallback) callback).onStream(httpResponse, responseBody.source());
+                    return;
+            }
+            if (parseType == HttpConstant.ParseType.PARSE_TYPE_BINARY) {
+                // empty is valid binary, e.g. a protobuf message of default values
+                httpResponse.setResponseData((T) binaryDecoder.decode(responseBody.byteStream()));
+            } else if (responseBody.source().exhausted()) {
+                httpResponse.setError(HttpConstant.Code.SERVER_NO_RESPONSE);
+                return;
+            } else if (parseType == HttpConstant.ParseType.PARSE_TYPE_ELEMENTS) {
+                httpResponse.setResponseData((T) Integer.valueOf(readElements(responseBody.charStream())));
+            } else {
+                httpResponse.setResponseData(responseParser.readData(responseBody.charStream(), httpResponse));
+            }
+            if (canceled) {
+                throw new IOException("Canceled");
+            }
+            if (httpResponse.getResponseData() == null && httpResponse.success) {
+                httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
+            }
+        } catch (Exception e) {
+            if (canceled) {
+                // the call was canceled while reading
+                httpResponse.canceled = true;
+                httpResponse.setError(HttpConstant.Code.NETWORK_ERROR);
+                return;
+            }
+            e.printStackTrace();
+            httpResponse.exception = e;
+            httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
+        } finally {
+            responseBody.close();
         }
     }
 
@@ -277,71 +1126,163 @@ class HttpRequest<T> {
      * @return data
      */
     private boolean parseToData(String responseString) {
-        switch (parseType) {
-            case HttpConstant.ParseType.PARSE_TYPE_STRING:
-                try {
-                    httpResponse.responseData = (T) responseString;
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                return httpResponse.responseData != null;
-            case HttpConstant.ParseType.PARSE_TYPE_JSON:
-                try {
-                    httpResponse.responseData = (T) new JSONObject(responseString);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                return httpResponse.responseData != null;
-            case HttpConstant.ParseType.PARSE_TYPE_JSON_ARRAY:
+        try {
+            httpResponse.setResponseData(responseParser.parseData(responseString, httpResponse));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return httpResponse.getResponseData() != null;
+    }
+
+    /**
+     * Stream the elements of the response string
+     *
+     * @param responseString response string
+     */
+    private void parseElements(String responseString) {
+        try {
+            httpResponse.setResponseData((T) Integer.valueOf(readElements(new StringReader(responseString))));
+        } catch (Exception e) {
+            if (canceled) {
+                httpResponse.canceled = true;
+                httpResponse.setError(HttpConstant.Code.NETWORK_ERROR);
+                return;
+            }
+            e.printStackTrace();
+            httpResponse.exception = e;
+            httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
+        }
+    }
+
+    /**
+     * Decode the array one element at a time and hand the batches to the callback,
+     * stops when the request is canceled or the callback refuses more.
+     * With an envelope filter the data array of the envelope is streamed, the filter runs
+     * after the envelope and decides between complete and failure
+     *
+     * @param reader reader
+     * @return count of the elements delivered
+     */
+    private int readElements(Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        EnvelopeFilter envelopeFilter = networkConfiguration.getEnvelopeFilter();
+        if (envelopeFilter == null) {
+            return readElementArray(jsonReader);
+        }
+        String dataName = envelopeFilter.dataName();
+        int count = 0;
+        Exception dataException = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (!name.equals(dataName)) {
+                envelopeFilter.readField(httpResponse, name, jsonReader);
+            } else if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+            } else {
                 try {
-                    httpResponse.responseData = (T) new JSONArray(responseString);
+                    count = readElementArray(jsonReader);
                 } catch (Exception e) {
-                    e.printStackTrace();
+                    if (canceled && e instanceof IOException) {
+                        throw (IOException) e;
+                    }
+                    // e.g. "data": "" of a failure, the envelope fields still count
+                    dataException = e;
+                    jsonReader.skipValue();
                 }
-                return httpResponse.responseData != null;
-            case HttpConstant.ParseType.PARSE_TYPE_OBJECT:
-                try {
-                    httpResponse.responseData = (T) JSON.parseObject(responseString, dataClass);
-                } catch (Exception e) {
-                    e.printStackTrace();
+                if (elementsRefused) {
+                    // the rest of the body is not read
+                    break;
                 }
-                return httpResponse.responseData != null;
-            case HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST:
-                try {
-                    httpResponse.responseData = (T) JSON.parseArray(responseString, dataClass);
-                } catch (Exception e) {
-                    e.printStackTrace();
+            }
+        }
+        if (!elementsRefused) {
+            jsonReader.endObject();
+        }
+        httpResponse.setResponseData((T) Integer.valueOf(count));
+        envelopeFilter.filter(httpResponse);
+        if (dataException != null) {
+            dataException.printStackTrace();
+            httpResponse.exception = dataException;
+            if (httpResponse.success) {
+                httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
+            }
+        }
+        return count;
+    }
+
+    private int readElementArray(JsonReader jsonReader) throws IOException {
+        Converter converter = networkConfiguration.getConverter();
+        ElementCallback<Object> elementCallback = (ElementCallback<Object>) callback;
+        List<Object> batch = new ArrayList<>(elementBatchSize);
+        int count = 0;
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            if (canceled) {
+                throw new IOException("Canceled");
+            }
+            batch.add(converter.fromJson(jsonReader, dataClass));
+            if (batch.size() >= elementBatchSize) {
+                count += batch.size();
+                if (!elementCallback.onElements(httpResponse, batch)) {
+                    elementsRefused = true;
+                    return count;
                 }
-                return httpResponse.responseData != null;
+                batch = new ArrayList<>(elementBatchSize);
+            }
+        }
+        jsonReader.endArray();
+        if (!batch.isEmpty()) {
+            count += batch.size();
+            elementCallback.onElements(httpResponse, batch);
         }
-        return false;
+        return count;
     }
 
     /**
      * Callback in main thread
      */
     void callback() {
+        callback(httpResponse);
+    }
+
+    private void callback(HttpResponse<T> response) {
         if (callback != null) {
-            if (httpResponse.success && httpResponse.responseData != null) {
+            T data = response.getResponseData();
+            if (response.success && (data != null
+                    || parseType == HttpConstant.ParseType.PARSE_TYPE_STREAM)) {
                 switch (parseType) {
                     case HttpConstant.ParseType.PARSE_TYPE_STRING:
-                        ((StringCallback) callback).onSuccess(httpResponse, (String) httpResponse.responseData);
+                        ((StringCallback) callback).onSuccess(response, (String) data);
                         break;
                     case HttpConstant.ParseType.PARSE_TYPE_JSON:
-                        ((JsonCallback) callback).onSuccess(httpResponse, (JSONObject) httpResponse.responseData);
+                        ((JsonCallback) callback).onSuccess(response, (JSONObject) data);
                         break;
                     case HttpConstant.ParseType.PARSE_TYPE_JSON_ARRAY:
-                        ((JsonArrayCallback) callback).onSuccess(httpResponse, (JSONArray) httpResponse.responseData);
+                        ((JsonArrayCallback) callback).onSuccess(response, (JSONArray) data);
                         break;
                     case HttpConstant.ParseType.PARSE_TYPE_OBJECT:
-                        ((ObjectCallback<T>) callback).onSuccess(httpResponse, httpResponse.responseData);
+                        ((ObjectCallback<T>) callback).onSuccess(response, data);
                         break;
                     case HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST:
-                        ((ObjectListCallback<T>) callback).onSuccess(httpResponse, (T[]) httpResponse.responseData);
+                        ((ObjectListCallback<T>) callback).onSuccess(response, (T[]) data);
+                        break;
+                    case HttpConstant.ParseType.PARSE_TYPE_BINARY:
+                        ((BinaryCallback<T>) callback).onSuccess(response, data);
+                        break;
+                    case HttpConstant.ParseType.PARSE_TYPE_BYTES:
+                        ((BytesCallback) callback).onSuccess(response, (byte[]) data);
+                        break;
+                    case HttpConstant.ParseType.PARSE_TYPE_STREAM:
+                        ((StreamCallback) callback).onSuccess(response);
+                        break;
+                    case HttpConstant.ParseType.PARSE_TYPE_ELEMENTS:
+                        ((ElementCallback<?>) callback).onComplete(response, (Integer) data);
                         break;
                 }
             } else {
-                callback.onFailure(httpResponse, httpResponse.code, httpResponse.message);
+                callback.onFailure(response, response.code, response.message);
             }
         }
     }
@@ -352,9 +1293,19 @@ class HttpRequest<T> {
         private HttpParams httpParams = new HttpParams();
         private BaseCallback callback = null;
         private Class dataClass = null;
+        private BinaryDecoder binaryDecoder = null;
+        private int elementBatchSize = HttpConstant.DEFAULT_ELEMENT_BATCH_SIZE;
         private int parseType = HttpConstant.ParseType.PARSE_TYPE_STRING;
         private Object tag = null;
         private VolarConfiguration separateConfiguration = null;
+        private boolean coalesce = false;
+        private HttpConstant.Priority priority = HttpConstant.Priority.NORMAL;
+        private boolean lazyParse = false;
+        private boolean decodeInBackground = false;
+        private RequestCompression compression = null;
+        private long memoryCacheTtl = 0;
+        private HttpConstant.CachePolicy cachePolicy = null;
+        private boolean revalidate = true;
 
         HttpRequestBuilder(String url, HttpConstant.Method method) {
             if (url != null)
@@ -387,6 +1338,61 @@ class HttpRequest<T> {
             return this;
         }
 
+        public <V> HttpRequestBuilder callback(ElementCallback<V> val1, Class val2) {
+            return callback(val1, val2, HttpConstant.DEFAULT_ELEMENT_BATCH_SIZE);
+        }
+
+        /**
+         * The json array is decoded one element at a time, batches are handed to the callback
+         * in the worker thread, the whole array is never held in memory
+         *
+         * @param val1 callback
+         * @param val2 element class
+         * @param val3 batch size
+         * @return builder
+         */
+        public <V> HttpRequestBuilder callback(ElementCallback<V> val1, Class val2, int val3) {
+            if (val1 != null && val2 != null) {
+                callback = val1;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_ELEMENTS;
+                dataClass = val2;
+                elementBatchSize = Math.max(1, val3);
+            }
+            return this;
+        }
+
+        public <V> HttpRequestBuilder callback(BinaryCallback<V> val1, BinaryDecoder<V> val2) {
+            if (val1 != null && val2 != null) {
+                callback = val1;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_BINARY;
+                binaryDecoder = val2;
+            }
+            return this;
+        }
+
+        public HttpRequestBuilder callback(BytesCallback val1) {
+            if (val1 != null) {
+                callback = val1;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_BYTES;
+            }
+            return this;
+        }
+
+        /**
+         * The body source is handed to the callback in the worker thread,
+         * such requests are never coalesced
+         *
+         * @param val1 callback
+         * @return builder
+         */
+        public HttpRequestBuilder callback(StreamCallback val1) {
+            if (val1 != null) {
+                callback = val1;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_STREAM;
+            }
+            return this;
+        }
+
         public HttpRequestBuilder callback(JsonCallback val1) {
             if (val1 != null) {
                 callback = val1;
@@ -421,6 +1427,105 @@ class HttpRequest<T> {
             return this;
         }
 
+        /**
+         * GET or HEAD only, while an identical request (method, url, headers and data type)
+         * is in flight, attach to it instead of going to the network, every attached request
+         * gets the same parsed data through its own callback
+         *
+         * @param val coalesce or not
+         * @return builder
+         */
+        public HttpRequestBuilder coalesce(boolean val) {
+            coalesce = val;
+            return this;
+        }
+
+        /**
+         * Higher priority requests overtake the queued lower priority ones, default normal
+         *
+         * @param val priority
+         * @return builder
+         */
+        public HttpRequestBuilder priority(HttpConstant.Priority val) {
+            if (val != null) {
+                priority = val;
+            }
+            return this;
+        }
+
+        /**
+         * Keep the raw response and decode the data the first time it is read by
+         * {@link HttpResponse#getResponseData()}, in the thread reading it,
+         * a failed response is never decoded
+         *
+         * @param val lazy or not
+         * @return builder
+         */
+        public HttpRequestBuilder lazyParse(boolean val) {
+            return lazyParse(val, false);
+        }
+
+        /**
+         * Lazy parse, optionally decoding in the worker pool before the main thread callback
+         *
+         * @param val1 lazy or not
+         * @param val2 decode in background before the callback or not
+         * @return builder
+         */
+        public HttpRequestBuilder lazyParse(boolean val1, boolean val2) {
+            lazyParse = val1;
+            decodeInBackground = val2;
+            return this;
+        }
+
+        /**
+         * Compress the request body, overrides the compression of the host
+         *
+         * @param val compression, {@link RequestCompression#NONE} to turn it off
+         * @return builder
+         */
+        public HttpRequestBuilder compression(RequestCompression val) {
+            compression = val;
+            return this;
+        }
+
+        /**
+         * GET only, keep the parsed response in the memory cache of the configuration, identical
+         * requests get it from memory without going to the network or parsing
+         *
+         * @param val time to live, ms
+         * @return builder
+         */
+        public HttpRequestBuilder memoryCache(long val) {
+            memoryCacheTtl = val;
+            return this;
+        }
+
+        /**
+         * Cache policy over the memory cache and the OkHttp disk cache, the source of every
+         * delivery is in {@link HttpResponse#source}. Without a policy only fresh memory cache
+         * is read before the network. Stale while revalidate in executeSync returns the cached
+         * response without refreshing
+         *
+         * @param val cache policy
+         * @return builder
+         */
+        public HttpRequestBuilder cachePolicy(HttpConstant.CachePolicy val) {
+            cachePolicy = val;
+            return this;
+        }
+
+        /**
+         * Revalidate by the revalidation store of the configuration or not, default true
+         *
+         * @param val revalidate or not
+         * @return builder
+         */
+        public HttpRequestBuilder revalidate(boolean val) {
+            revalidate = val;
+            return this;
+        }
+
         public <V> void execute() {
             switch (parseType) {
                 case HttpConstant.ParseType.PARSE_TYPE_STRING:
@@ -438,7 +1543,75 @@ class HttpRequest<T> {
                 case HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST:
                     new HttpRequest<List<V>>(this).execute();
                     break;
+                case HttpConstant.ParseType.PARSE_TYPE_BINARY:
+                    new HttpRequest<V>(this).execute();
+                    break;
+                case HttpConstant.ParseType.PARSE_TYPE_BYTES:
+                    new HttpRequest<byte[]>(this).execute();
+                    break;
+                case HttpConstant.ParseType.PARSE_TYPE_STREAM:
+                    new HttpRequest<Void>(this).execute();
+                    break;
+                case HttpConstant.ParseType.PARSE_TYPE_ELEMENTS:
+                    new HttpRequest<Integer>(this).execute();
+                    break;
+            }
+        }
+
+        /**
+         * Execute in the calling thread and return the response, the callback will not be called,
+         * data is parsed as the type of the callback set, default string.
+         * Never call it in main thread
+         *
+         * @return response
+         */
+        public <V> HttpResponse<V> executeSync() {
+            return new HttpRequest<V>(this).executeSync();
+        }
+
+        /**
+         * Execute in the calling thread and parse the data to object
+         *
+         * @param val data class
+         * @return response
+         */
+        public <V> HttpResponse<V> executeSync(Class<V> val) {
+            if (val != null) {
+                callback = null;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_OBJECT;
+                dataClass = val;
+            }
+            return new HttpRequest<V>(this).executeSync();
+        }
+
+        /**
+         * Execute in the calling thread and decode the binary data
+         *
+         * @param val decoder
+         * @return response
+         */
+        public <V> HttpResponse<V> executeSync(BinaryDecoder<V> val) {
+            if (val != null) {
+                callback = null;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_BINARY;
+                binaryDecoder = val;
+            }
+            return new HttpRequest<V>(this).executeSync();
+        }
+
+        /**
+         * Execute in the calling thread and parse the data to object array
+         *
+         * @param val data class
+         * @return response
+         */
+        public <V> HttpResponse<V[]> executeSyncList(Class<V> val) {
+            if (val != null) {
+                callback = null;
+                parseType = HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST;
+                dataClass = val;
             }
+            return new HttpRequest<V[]>(this).executeSync();
         }
     }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import io.volar.configuration.CustomErrorMessages;
 import okhttp3.Call;
 import okhttp3.Headers;
 import okhttp3.Response;
+import okio.ByteString;
 
 /**
  * Created by LiShen on 2017/11/27.
@@ -43,14 +44,27 @@ public final class HttpResponse<T> {
     public int code;
     public boolean success;
     public String responseString;
-    public T responseData;
     public Class responseDataClass;
     public long requestCostTime;
     public long parseDataCostTime;
+    /**
+     * Compressed length / original length of the request body, 0 if the body was not compressed
+     */
+    public float requestCompressionRatio;
     public int callbackType;
+    /**
+     * Where the response comes from
+     */
+    public HttpConstant.ResponseSource source = HttpConstant.ResponseSource.NETWORK;
     public boolean noNeedCallback;
 
+    /**
+     * Hash of the body parsed without a response string, to tell if a revalidated response changed
+     */
+    ByteString bodyHash;
+    private T responseData;
     private Object extra;
+    private volatile LazyData<T> lazyData;
 
     /**
      * Only use once
@@ -67,6 +81,80 @@ public final class HttpResponse<T> {
         this.extra = extra;
     }
 
+    /**
+     * Response data, with lazy parse it is decoded the first time it is read, in the thread reading it,
+     * if decoding fails the response turns into a data parse failure. The copies of the response
+     * from the caches and the identical requests share the decoding, it runs once.
+     * Failed responses don't decode
+     *
+     * @return data
+     */
+    public T getResponseData() {
+        if (lazyData != null) {
+            synchronized (this) {
+                LazyData<T> lazyData = this.lazyData;
+                if (lazyData != null) {
+                    this.lazyData = null;
+                    lazyData.decode(this);
+                }
+            }
+        }
+        return responseData;
+    }
+
+    /**
+     * Replace the response data, e.g. by the {@link io.volar.configuration.EnvelopeFilter}
+     *
+     * @param responseData data
+     */
+    public synchronized void setResponseData(T responseData) {
+        lazyData = null;
+        this.responseData = responseData;
+    }
+
+    void setDataDecoder(DataDecoder<T> dataDecoder) {
+        lazyData = new LazyData<>(dataDecoder);
+    }
+
+    /**
+     * The shared lazy data was decoded by another copy and turned into a failure
+     *
+     * @return failed or not
+     */
+    synchronized boolean isLazyDataFailed() {
+        return lazyData != null && lazyData.isFailed();
+    }
+
+    /**
+     * Shallow copy without the extra, undecoded lazy data is shared and decoded once by the first copy reading it
+     *
+     * @return copy
+     */
+    synchronized HttpResponse<T> copy() {
+        HttpResponse<T> copy = new HttpResponse<>();
+        copy.url = url;
+        copy.call = call;
+        copy.headers = headers;
+        copy.response = response;
+        copy.message = message;
+        copy.exception = exception;
+        copy.canceled = canceled;
+        copy.code = code;
+        copy.success = success;
+        copy.responseString = responseString;
+        copy.responseData = responseData;
+        copy.lazyData = lazyData;
+        copy.bodyHash = bodyHash;
+        copy.responseDataClass = responseDataClass;
+        copy.requestCostTime = requestCostTime;
+        copy.parseDataCostTime = parseDataCostTime;
+        copy.requestCompressionRatio = requestCompressionRatio;
+        copy.callbackType = callbackType;
+        copy.source = source;
+        copy.noNeedCallback = noNeedCallback;
+        return copy;
+    }
+
     public void setError(int errorCode) {
         success = false;
         code = errorCode;
@@ -102,4 +190,74 @@ public final class HttpResponse<T> {
                 break;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Undecoded data shared by the copies of a lazy response, decoded by the first successful copy
+     * reading it, the others take its result, the input is released after
+     *
+     * @param <T> data
+     */
+    private static final class LazyData<T> {
+        private DataDecoder<T> decoder;
+        private boolean decoded;
+        private T data;
+        private int code;
+        private boolean success;
+        private String message;
+        private Exception exception;
+        private long costTime;
+
+        private LazyData(DataDecoder<T> decoder) {
+            this.decoder = decoder;
+        }
+
+        private synchronized void decode(HttpResponse<T> httpResponse) {
+            if (!httpResponse.success) {
+                // e.g. a canceled follower, keep its error
+                return;
+            }
+            if (!decoded) {
+                decoded = true;
+                long start = System.currentTimeMillis();
+                try {
+                    httpResponse.responseData = decoder.decode(httpResponse);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    httpResponse.exception = e;
+                }
+                decoder = null;
+                costTime = System.currentTimeMillis() - start;
+                if (httpResponse.responseData == null && httpResponse.success) {
+                    httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
+                }
+                data = httpResponse.responseData;
+                code = httpResponse.code;
+                success = httpResponse.success;
+                message = httpResponse.message;
+                exception = httpResponse.exception;
+            } else {
+                httpResponse.responseData = data;
+                httpResponse.code = code;
+                httpResponse.success = success;
+                httpResponse.message = message;
+                httpResponse.exception = exception;
+            }
+            httpResponse.parseDataCostTime += costTime;
+        }
+
+        private synchronized boolean isFailed() {
+            return decoded && !success;
+        }
+    }
+
+    /**
+     * Decode the data kept undecoded by lazy parse
+     */
+    interface DataDecoder<T> {
+        /**
+         * @param httpResponse response being decoded, the envelope fields are written to it
+         * @return data
+         */
+        T decode(HttpResponse<T> httpResponse) throws Exception;
+    }
+}
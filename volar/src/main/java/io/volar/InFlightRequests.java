@@ -0,0 +1,46 @@
+package io.volar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Identical idempotent requests in flight, the first one goes to the network,
+ * the followers attach to it and share its response
+ */
+final class InFlightRequests {
+    private final Map<String, List<HttpRequest<?>>> requests = new HashMap<>();
+
+    /**
+     * Attach to the identical request in flight, or become the one in flight
+     *
+     * @param key     coalesce key
+     * @param request request
+     * @return true if attached as a follower, false if the request should go to the network
+     */
+    synchronized boolean attach(String key, HttpRequest<?> request) {
+        List<HttpRequest<?>> followers = requests.get(key);
+        if (followers != null) {
+            followers.add(request);
+            return true;
+        }
+        requests.put(key, new ArrayList<HttpRequest<?>>());
+        return false;
+    }
+
+    /**
+     * The request in flight is done, no more followers can attach
+     *
+     * @param key coalesce key
+     * @return followers
+     */
+    synchronized List<HttpRequest<?>> complete(String key) {
+        List<HttpRequest<?>> followers = requests.remove(key);
+        if (followers == null) {
+            return Collections.emptyList();
+        }
+        return followers;
+    }
+}
@@ -0,0 +1,54 @@
+package io.volar;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import io.volar.converter.Converter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Json body serialized by the converter straight into the sink while it is written,
+ * no json string or byte array in between, each write serializes once. The length is unknown
+ * without serializing, so it is sent chunked, params needing the json string anyway,
+ * like logging, get a string body of known length instead
+ */
+final class JsonRequestBody extends RequestBody {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MediaType contentType;
+    private final Object value;
+    private final Converter converter;
+
+    JsonRequestBody(MediaType contentType, Object value, Converter converter) {
+        this.contentType = contentType;
+        this.value = value;
+        this.converter = converter;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        // not cheap, it takes a serialization
+        return -1;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        Writer writer = new OutputStreamWriter(sink.outputStream(), charset);
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        converter.toJson(value, jsonWriter);
+        // flush into the sink without closing it
+        jsonWriter.flush();
+    }
+}
@@ -0,0 +1,224 @@
+package io.volar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import io.volar.configuration.VolarConfiguration;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * Priority aware scheduler in front of the OkHttp dispatcher, calls wait here
+ * while the dispatcher or their host is saturated so higher priority calls
+ * overtake the queued lower ones. Per host limits are applied here as OkHttp
+ * only supports one limit for all hosts
+ */
+final class RequestScheduler {
+    private final VolarConfiguration configuration;
+    private final TreeSet<ScheduledCall> readyCalls = new TreeSet<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private final Map<String, Integer> queuedPerHost = new HashMap<>();
+    private int runningCount;
+    private int runningHighCount;
+    private long sequence;
+
+    RequestScheduler(VolarConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Enqueue the call with priority
+     *
+     * @param call     call
+     * @param callback callback
+     * @param priority priority
+     */
+    void enqueue(Call call, Callback callback, HttpConstant.Priority priority) {
+        synchronized (this) {
+            ScheduledCall scheduledCall = new ScheduledCall(call, callback, priority, sequence++);
+            readyCalls.add(scheduledCall);
+            increase(queuedPerHost, scheduledCall.host);
+        }
+        promoteCalls();
+    }
+
+    /**
+     * Cancel the calls waiting here, they are not known to the dispatcher yet,
+     * their callbacks fail as canceled in the work pool, not in the calling thread
+     */
+    void cancelAll() {
+        List<ScheduledCall> canceled;
+        synchronized (this) {
+            canceled = new ArrayList<>(readyCalls);
+            readyCalls.clear();
+            queuedPerHost.clear();
+        }
+        for (final ScheduledCall scheduledCall : canceled) {
+            scheduledCall.call.cancel();
+            Volar.getDefault().getWorkExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    scheduledCall.callback.onFailure(scheduledCall.call, new IOException("Canceled"));
+                }
+            }, scheduledCall.priority, new Runnable() {
+                @Override
+                public void run() {
+                    // the dispatcher fails the canceled call in its own thread
+                    scheduledCall.call.enqueue(scheduledCall.callback);
+                }
+            });
+        }
+    }
+
+    synchronized int runningCallsCount() {
+        return runningCount;
+    }
+
+    synchronized int queuedCallsCount() {
+        return readyCalls.size();
+    }
+
+    synchronized int runningCallsCount(String host) {
+        return count(runningPerHost, host);
+    }
+
+    synchronized int queuedCallsCount(String host) {
+        return count(queuedPerHost, host);
+    }
+
+    /**
+     * Running calls count of every host
+     *
+     * @return host -> count
+     */
+    synchronized Map<String, Integer> runningCallsCountPerHost() {
+        return new HashMap<>(runningPerHost);
+    }
+
+    /**
+     * Queued calls count of every host
+     *
+     * @return host -> count
+     */
+    synchronized Map<String, Integer> queuedCallsCountPerHost() {
+        return new HashMap<>(queuedPerHost);
+    }
+
+    private void promoteCalls() {
+        while (true) {
+            ScheduledCall next = null;
+            synchronized (this) {
+                if (runningCount >= Volar.getDefault().getOkHttpClient().dispatcher().getMaxRequests()) {
+                    return;
+                }
+                for (Iterator<ScheduledCall> i = readyCalls.iterator(); i.hasNext(); ) {
+                    ScheduledCall scheduledCall = i.next();
+                    if (canRun(scheduledCall)) {
+                        i.remove();
+                        next = scheduledCall;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+                decrease(queuedPerHost, next.host);
+                increase(runningPerHost, next.host);
+                runningCount++;
+                if (next.priority == HttpConstant.Priority.HIGH) {
+                    runningHighCount++;
+                }
+            }
+            next.call.enqueue(next);
+        }
+    }
+
+    private boolean canRun(ScheduledCall scheduledCall) {
+        if (count(runningPerHost, scheduledCall.host) >= configuration.getMaxRequestsPerHost(scheduledCall.host)) {
+            return false;
+        }
+        return !(scheduledCall.priority == HttpConstant.Priority.LOW
+                && runningHighCount > 0
+                && configuration.isHoldLowPriorityWhileHighRunning());
+    }
+
+    private void finished(ScheduledCall scheduledCall) {
+        synchronized (this) {
+            decrease(runningPerHost, scheduledCall.host);
+            runningCount--;
+            if (scheduledCall.priority == HttpConstant.Priority.HIGH) {
+                runningHighCount--;
+            }
+        }
+        promoteCalls();
+    }
+
+    private static int count(Map<String, Integer> counts, String host) {
+        Integer count = counts.get(host);
+        return count == null ? 0 : count;
+    }
+
+    private static void increase(Map<String, Integer> counts, String host) {
+        counts.put(host, count(counts, host) + 1);
+    }
+
+    private static void decrease(Map<String, Integer> counts, String host) {
+        int count = count(counts, host) - 1;
+        if (count > 0) {
+            counts.put(host, count);
+        } else {
+            counts.remove(host);
+        }
+    }
+
+    /**
+     * Call waiting for the dispatcher, ordered by priority then FIFO
+     */
+    private final class ScheduledCall implements Callback, Comparable<ScheduledCall> {
+        private final Call call;
+        private final Callback callback;
+        private final HttpConstant.Priority priority;
+        private final long sequence;
+        private final String host;
+
+        private ScheduledCall(Call call, Callback callback, HttpConstant.Priority priority, long sequence) {
+            this.call = call;
+            this.host = call.request().url().host();
+            this.callback = callback;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            try {
+                callback.onFailure(call, e);
+            } finally {
+                finished(this);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            try {
+                callback.onResponse(call, response);
+            } finally {
+                finished(this);
+            }
+        }
+
+        @Override
+        public int compareTo(ScheduledCall o) {
+            if (priority != o.priority) {
+                return o.priority.ordinal() - priority.ordinal();
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
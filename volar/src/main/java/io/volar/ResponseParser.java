@@ -0,0 +1,199 @@
+package io.volar;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.volar.configuration.EnvelopeFilter;
+import io.volar.converter.Converter;
+
+/**
+ * Parse the response string or body to the data of the parse type, the envelope fields are
+ * written to the response being parsed. Holds no reference to the request, so lazy decoders
+ * and cached responses don't keep the request and its callback alive
+ *
+ * @param <T> data
+ */
+final class ResponseParser<T> {
+    private final int parseType;
+    private final Class dataClass;
+    private final Converter converter;
+    private final EnvelopeFilter envelopeFilter;
+
+    ResponseParser(int parseType, Class dataClass, Converter converter, EnvelopeFilter envelopeFilter) {
+        this.parseType = parseType;
+        this.dataClass = dataClass;
+        this.converter = converter;
+        this.envelopeFilter = envelopeFilter;
+    }
+
+    /**
+     * Parse response string to the data of the parse type
+     *
+     * @param responseString response string
+     * @param httpResponse   response being parsed
+     * @return data
+     */
+    T parseData(String responseString, HttpResponse<T> httpResponse) throws Exception {
+        switch (parseType) {
+            case HttpConstant.ParseType.PARSE_TYPE_STRING:
+                return (T) responseString;
+            case HttpConstant.ParseType.PARSE_TYPE_JSON:
+                return (T) new JSONObject(responseString);
+            case HttpConstant.ParseType.PARSE_TYPE_JSON_ARRAY:
+                return (T) new JSONArray(responseString);
+            case HttpConstant.ParseType.PARSE_TYPE_OBJECT:
+            case HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST:
+                return readData(new StringReader(responseString), httpResponse);
+        }
+        return null;
+    }
+
+    /**
+     * Read object or object array data with the converter,
+     * unwrapping the envelope if an envelope filter is set
+     *
+     * @param reader       reader
+     * @param httpResponse response being parsed
+     * @return data
+     */
+    T readData(Reader reader, HttpResponse<T> httpResponse) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        if (envelopeFilter != null) {
+            return readEnvelope(jsonReader, httpResponse);
+        }
+        return readValue(jsonReader);
+    }
+
+    /**
+     * Stream through the envelope, the data value is decoded in place. The filter always runs,
+     * a data value failing to decode is a parse failure only if the filter leaves the response successful,
+     * so a failure envelope like {"code": 500, "msg": "x", "data": ""} keeps its code and message
+     *
+     * @param jsonReader   reader
+     * @param httpResponse response being parsed
+     * @return data
+     */
+    private T readEnvelope(JsonReader jsonReader, HttpResponse<T> httpResponse) {
+        String dataName = envelopeFilter.dataName();
+        T data = null;
+        Exception dataException = null;
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String name = jsonReader.nextName();
+                if (!name.equals(dataName)) {
+                    envelopeFilter.readField(httpResponse, name, jsonReader);
+                } else if (jsonReader.peek() == JsonToken.NULL) {
+                    jsonReader.nextNull();
+                } else {
+                    try {
+                        data = readValue(jsonReader);
+                    } catch (Exception e) {
+                        dataException = e;
+                        jsonReader.skipValue();
+                    }
+                }
+            }
+            jsonReader.endObject();
+        } catch (Exception e) {
+            // broken envelope, the filter gets the fields read so far
+            if (dataException == null) {
+                dataException = e;
+            }
+        }
+        httpResponse.setResponseData(data);
+        envelopeFilter.filter(httpResponse);
+        if (dataException != null) {
+            dataException.printStackTrace();
+            httpResponse.exception = dataException;
+            if (httpResponse.success) {
+                httpResponse.setError(HttpConstant.Code.DATA_PARSE_FAILURE);
+            }
+        }
+        return httpResponse.getResponseData();
+    }
+
+    private T readValue(JsonReader jsonReader) throws IOException {
+        if (parseType == HttpConstant.ParseType.PARSE_TYPE_OBJECT) {
+            return (T) converter.fromJson(jsonReader, dataClass);
+        }
+        List<Object> list = new ArrayList<>();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            list.add(converter.fromJson(jsonReader, dataClass));
+        }
+        jsonReader.endArray();
+        return (T) list.toArray((Object[]) Array.newInstance(dataClass, list.size()));
+    }
+
+    /**
+     * Lazy decoder of the response string
+     *
+     * @param responseString response string
+     * @return decoder
+     */
+    HttpResponse.DataDecoder<T> decoder(String responseString) {
+        return new StringDecoder<>(this, responseString);
+    }
+
+    /**
+     * Lazy decoder of the raw body
+     *
+     * @param bytes   body
+     * @param charset charset
+     * @return decoder
+     */
+    HttpResponse.DataDecoder<T> decoder(byte[] bytes, Charset charset) {
+        return new BytesDecoder<>(this, bytes, charset);
+    }
+
+    private static final class StringDecoder<T> implements HttpResponse.DataDecoder<T> {
+        private final ResponseParser<T> parser;
+        private final String responseString;
+
+        private StringDecoder(ResponseParser<T> parser, String responseString) {
+            this.parser = parser;
+            this.responseString = responseString;
+        }
+
+        @Override
+        public T decode(HttpResponse<T> httpResponse) throws Exception {
+            return parser.parseData(responseString, httpResponse);
+        }
+    }
+
+    private static final class BytesDecoder<T> implements HttpResponse.DataDecoder<T> {
+        private final ResponseParser<T> parser;
+        private final byte[] bytes;
+        private final Charset charset;
+
+        private BytesDecoder(ResponseParser<T> parser, byte[] bytes, Charset charset) {
+            this.parser = parser;
+            this.bytes = bytes;
+            this.charset = charset;
+        }
+
+        @Override
+        public T decode(HttpResponse<T> httpResponse) throws Exception {
+            if (parser.parseType == HttpConstant.ParseType.PARSE_TYPE_OBJECT
+                    || parser.parseType == HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST) {
+                return parser.readData(new InputStreamReader(new ByteArrayInputStream(bytes), charset), httpResponse);
+            }
+            return parser.parseData(new String(bytes, charset), httpResponse);
+        }
+    }
+}
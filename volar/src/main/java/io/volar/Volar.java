@@ -1,20 +1,19 @@
 package io.volar;
 
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
-import android.os.Process;
+import android.util.Log;
 
 import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import io.volar.configuration.VolarConfiguration;
 import io.volar.https.SslSocketFactoryHelper;
 import io.volar.https.SslSocketFactoryParams;
 import io.volar.https.TrustAllHostnameVerifier;
-import io.volar.util.LOG;
-import okhttp3.Call;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 
 /**
@@ -28,8 +27,13 @@ public final class Volar {
     private VolarConfiguration configuration;
     private OkHttpClient okHttpClient;
     private MainHandler mainHandler;
-    private WorkHandler workHandler;
-    private HandlerThread workThread;
+    private WorkExecutor workExecutor;
+    private DerivedClientCache derivedClientCache;
+    private BaseUrlCache baseUrlCache = new BaseUrlCache(HttpConstant.DEFAULT_BASE_URL_CACHE_SIZE);
+    private InFlightRequests inFlightRequests = new InFlightRequests();
+    private CallRegistry callRegistry = new CallRegistry();
+    private RequestScheduler requestScheduler;
+    private AsyncLogger logger;
 
     private Volar(VolarConfiguration customConfiguration) {
         if (customConfiguration == null) {
@@ -38,6 +42,10 @@ public final class Volar {
             this.configuration = customConfiguration;
         }
         okHttpClient = generateOkHttpClient(configuration);
+        derivedClientCache = new DerivedClientCache(configuration.getDerivedClientCacheSize());
+        workExecutor = new WorkExecutor(configuration);
+        requestScheduler = new RequestScheduler(configuration);
+        logger = new AsyncLogger(configuration);
     }
 
     /**
@@ -47,7 +55,43 @@ public final class Volar {
      * @return
      */
     OkHttpClient generateOkHttpClient(VolarConfiguration configuration) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        Dispatcher dispatcher;
+        if (configuration.getDispatcherExecutor() != null) {
+            dispatcher = new Dispatcher(configuration.getDispatcherExecutor());
+        } else {
+            dispatcher = new Dispatcher();
+        }
+        dispatcher.setMaxRequests(configuration.getMaxRequests());
+        // per host limits are applied by the request scheduler
+        dispatcher.setMaxRequestsPerHost(configuration.getMaxRequestsOfAnyHost());
+        return applyConfiguration(new OkHttpClient.Builder().dispatcher(dispatcher), configuration).build();
+    }
+
+    /**
+     * Get a OkHttpClient for a separate configuration, derived from the root client
+     * so it shares the connection pool and the dispatcher. TLS settings not set in the
+     * separate configuration are inherited from the root client
+     *
+     * @param configuration separate configuration
+     * @return cached client
+     */
+    OkHttpClient getSeparateOkHttpClient(VolarConfiguration configuration) {
+        OkHttpClient client = derivedClientCache.get(configuration);
+        if (client == null) {
+            client = derivedClientCache.put(configuration,
+                    applyConfiguration(okHttpClient.newBuilder(), configuration).build());
+        }
+        return client;
+    }
+
+    /**
+     * Apply the configuration to a OkHttpClient builder
+     *
+     * @param builder       builder
+     * @param configuration configuration
+     * @return builder
+     */
+    private OkHttpClient.Builder applyConfiguration(OkHttpClient.Builder builder, VolarConfiguration configuration) {
         builder.connectTimeout(configuration.getConnectTimeout(), TimeUnit.MILLISECONDS);
         builder.readTimeout(configuration.getReadTimeout(), TimeUnit.MILLISECONDS);
         builder.writeTimeout(configuration.getWriteTimeout(), TimeUnit.MILLISECONDS);
@@ -56,6 +100,11 @@ public final class Volar {
         builder.followRedirects(configuration.isFollowRedirects());
         builder.followSslRedirects(configuration.isFollowSslRedirects());
         builder.proxy(configuration.getProxy());
+        // derived clients replace the interceptors of the root client
+        builder.interceptors().clear();
+        builder.interceptors().addAll(configuration.getInterceptors());
+        builder.networkInterceptors().clear();
+        builder.networkInterceptors().addAll(configuration.getNetworkInterceptors());
         if (configuration.getDns() != null) {
             builder.dns(configuration.getDns());
         }
@@ -78,7 +127,7 @@ public final class Volar {
                 builder.hostnameVerifier(new TrustAllHostnameVerifier());
             }
         }
-        return builder.build();
+        return builder;
     }
 
     /**
@@ -143,31 +192,88 @@ public final class Volar {
         return configuration.newBuilder();
     }
 
+    /**
+     * Get the state of the request preparation worker pool
+     *
+     * @return stats
+     */
+    public WorkerPoolStats getWorkerPoolStats() {
+        return workExecutor.getStats();
+    }
+
+    /**
+     * Calls handed to OkHttp and not finished yet
+     *
+     * @return count
+     */
+    public int getRunningCallsCount() {
+        return requestScheduler.runningCallsCount();
+    }
+
+    /**
+     * Calls waiting for the dispatcher or their host
+     *
+     * @return count
+     */
+    public int getQueuedCallsCount() {
+        return requestScheduler.queuedCallsCount();
+    }
+
+    /**
+     * Calls of the host handed to OkHttp and not finished yet
+     *
+     * @param host host
+     * @return count
+     */
+    public int getRunningCallsCount(String host) {
+        return requestScheduler.runningCallsCount(host);
+    }
+
+    /**
+     * Calls of the host waiting for the dispatcher or the host limit
+     *
+     * @param host host
+     * @return count
+     */
+    public int getQueuedCallsCount(String host) {
+        return requestScheduler.queuedCallsCount(host);
+    }
+
+    /**
+     * Running calls count of every host
+     *
+     * @return host -> count
+     */
+    public Map<String, Integer> getRunningCallsCountPerHost() {
+        return requestScheduler.runningCallsCountPerHost();
+    }
+
+    /**
+     * Queued calls count of every host
+     *
+     * @return host -> count
+     */
+    public Map<String, Integer> getQueuedCallsCountPerHost() {
+        return requestScheduler.queuedCallsCountPerHost();
+    }
+
     /**
      * Cancel all calls
      */
     public void cancelAllCalls() {
+        callRegistry.cancelAll();
+        requestScheduler.cancelAll();
         getOkHttpClient().dispatcher().cancelAll();
     }
 
     /**
-     * Cancel call
+     * Cancel the requests and downloads executed with the tag,
+     * including the ones not handed to OkHttp yet
      *
      * @param tag tag
      */
     public void cancelCall(Object tag) {
-        if (tag != null) {
-            for (Call call : getOkHttpClient().dispatcher().queuedCalls()) {
-                if (tag.equals(call.request().tag())) {
-                    call.cancel();
-                }
-            }
-            for (Call call : getOkHttpClient().dispatcher().runningCalls()) {
-                if (tag.equals(call.request().tag())) {
-                    call.cancel();
-                }
-            }
-        }
+        callRegistry.cancel(tag);
     }
 
     /**
@@ -253,106 +359,159 @@ public final class Volar {
     }
 
     /**
-     * Work handler
+     * Work executor
      *
-     * @return handler
+     * @return executor
      */
-    WorkHandler getWorkHandler() {
-        if (workThread == null || !workThread.isAlive() || workHandler == null || workHandler.reference.get() == null) {
-            workHandler = new WorkHandler(this, getWorkThread().getLooper());
-        }
-        return workHandler;
+    WorkExecutor getWorkExecutor() {
+        return workExecutor;
     }
 
     /**
-     * Work thread
+     * Requests in flight which can be shared by identical requests
      *
-     * @return thread
+     * @return in flight requests
      */
-    private HandlerThread getWorkThread() {
-        if (workThread == null || !workThread.isAlive() || workHandler == null || workHandler.reference.get() == null) {
-            workThread = new HandlerThread("volar", Process.THREAD_PRIORITY_BACKGROUND);
-            workThread.start();
-        }
-        return workThread;
+    InFlightRequests getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    /**
+     * Parsed request urls
+     *
+     * @return base url cache
+     */
+    BaseUrlCache getBaseUrlCache() {
+        return baseUrlCache;
+    }
+
+    /**
+     * Tag index of the requests not finished yet
+     *
+     * @return registry
+     */
+    CallRegistry getCallRegistry() {
+        return callRegistry;
+    }
+
+    /**
+     * Priority scheduler in front of the dispatcher
+     *
+     * @return scheduler
+     */
+    RequestScheduler getRequestScheduler() {
+        return requestScheduler;
     }
 
     private void handleMainMessage(Message msg) {
 
     }
 
-    private void handleWorkMessage(Message msg) {
+    /**
+     * Check it before building a log message, a disabled log costs nothing
+     *
+     * @return log enabled or not
+     */
+    boolean isLogEnabled() {
+        return getConfiguration().isLogEnabled();
+    }
 
+    /**
+     * Logger, the message is concatenated only if the log is enabled and sampled
+     *
+     * @param category category
+     * @param prefix   prefix
+     * @param content  content
+     */
+    void log(HttpConstant.LogCategory category, String prefix, String content) {
+        log(category, prefix, content, false);
     }
 
     /**
-     * Logger, default not error
+     * Logger, the message is concatenated only if the log is enabled and sampled
      *
-     * @param content
+     * @param category category
+     * @param prefix   prefix
+     * @param content  content
+     * @param error    error or not
      */
-    void log(String content) {
-        log(content, false);
+    void log(HttpConstant.LogCategory category, String prefix, String content, boolean error) {
+        if (isLoggable(category, error)) {
+            write(category, prefix + content, error);
+        }
     }
 
     /**
-     * Logger
+     * Check it before building an expensive log message, then {@link #write}
      *
-     * @param content content
+     * @param category category
+     * @param error    error or not
+     * @return log or not
      */
-    void log(String content, boolean error) {
-        if (getConfiguration().isLogEnabled()) {
-            if (error) {
-                LOG.e(getConfiguration().getLogTag(), content);
-                return;
-            }
+    boolean isLoggable(HttpConstant.LogCategory category, boolean error) {
+        return isLogEnabled() && logger.sample(category, error);
+    }
+
+    /**
+     * Put the log to the log buffer, the writer thread writes it to the sinks
+     *
+     * @param category category
+     * @param content  content
+     * @param error    error or not
+     */
+    void write(HttpConstant.LogCategory category, String content, boolean error) {
+        int priority;
+        if (error) {
+            priority = Log.ERROR;
+        } else {
             switch (getConfiguration().getLogLevel()) {
                 case V:
-                    LOG.v(getConfiguration().getLogTag(), content);
+                    priority = Log.VERBOSE;
                     break;
                 default:
                 case I:
-                    LOG.i(getConfiguration().getLogTag(), content);
+                    priority = Log.INFO;
                     break;
                 case D:
-                    LOG.d(getConfiguration().getLogTag(), content);
+                    priority = Log.DEBUG;
                     break;
                 case W:
-                    LOG.w(getConfiguration().getLogTag(), content);
+                    priority = Log.WARN;
                     break;
                 case E:
-                    LOG.e(getConfiguration().getLogTag(), content);
+                    priority = Log.ERROR;
                     break;
             }
         }
+        logger.log(category, priority, getConfiguration().getLogTag(), content);
     }
 
     /**
-     * Main thread handler
+     * Logs dropped as the log buffer was full
+     *
+     * @return count
      */
-    static final class MainHandler extends Handler {
-        private final WeakReference<Volar> reference;
-
-        private MainHandler(Volar volar, Looper Looper) {
-            super(Looper);
-            reference = new WeakReference<>(volar);
-        }
+    public long getDroppedLogCount() {
+        return logger.getDroppedCount();
+    }
 
-        @Override
-        public void handleMessage(Message msg) {
-            Volar volar = reference.get();
-            if (volar != null && msg != null) {
-                volar.handleMainMessage(msg);
-            }
-        }
+    /**
+     * Logs of the category dropped as the log buffer was full
+     *
+     * @param category category
+     * @return count
+     */
+    public long getDroppedLogCount(HttpConstant.LogCategory category) {
+        return logger.getDroppedCount(category);
     }
 
     /**
-     * Work thread handler
+     * Main thread handler
      */
-    static final class WorkHandler extends Handler {
+    static final class MainHandler extends Handler {
         private final WeakReference<Volar> reference;
 
-        private WorkHandler(Volar volar, Looper Looper) {
+        private MainHandler(Volar volar, Looper Looper) {
             super(Looper);
             reference = new WeakReference<>(volar);
         }
@@ -361,7 +520,7 @@ public final class Volar {
         public void handleMessage(Message msg) {
             Volar volar = reference.get();
             if (volar != null && msg != null) {
-                volar.handleWorkMessage(msg);
+                volar.handleMainMessage(msg);
             }
         }
     }
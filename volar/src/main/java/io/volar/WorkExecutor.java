@@ -0,0 +1,197 @@
+package io.volar;
+
+import android.os.Process;
+
+import java.util.Comparator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.volar.configuration.VolarConfiguration;
+
+/**
+ * Bounded worker pool which prepares the requests (filter, params serialization, logging)
+ * before they are handed to OkHttp
+ */
+final class WorkExecutor {
+    private static final long KEEP_ALIVE_TIME = 30 * 1000;
+
+    private final ThreadPoolExecutor executor;
+    private final BoundedPriorityQueue queue;
+
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    WorkExecutor(VolarConfiguration configuration) {
+        int poolSize = configuration.getWorkerPoolSize();
+        queue = new BoundedPriorityQueue(configuration.getWorkerQueueSize());
+        executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_TIME, TimeUnit.MILLISECONDS,
+                queue, new WorkThreadFactory("volar-", configuration.getWorkerThreadPriority()), new RejectedHandler());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Execute a task in the pool, higher priority tasks leave the queue first.
+     * If the queue is full, the task takes the place of the queued task of the lowest priority,
+     * or it is rejected if there is none lower. A rejected task never runs, its rejection runs
+     * instead in the calling thread, usually the main one, so it must be light, like posting a failure
+     *
+     * @param task      task
+     * @param priority  priority
+     * @param rejection run instead of the task if it is rejected
+     */
+    void execute(Runnable task, HttpConstant.Priority priority, Runnable rejection) {
+        executor.execute(new TimedTask(task, rejection, priority, sequence.getAndIncrement()));
+    }
+
+    /**
+     * Snapshot of the pool state
+     *
+     * @return stats
+     */
+    WorkerPoolStats getStats() {
+        return new WorkerPoolStats(executor.getMaximumPoolSize(), executor.getPoolSize(),
+                executor.getActiveCount(), queue.size(), queue.remainingCapacity(),
+                executedCount.get(), rejectedCount.get(), totalWaitTime.get(), maxWaitTime.get());
+    }
+
+    private void recordWaitTime(long waitTime) {
+        executedCount.incrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        long max;
+        do {
+            max = maxWaitTime.get();
+        } while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime));
+    }
+
+    /**
+     * Task which records how long it waited in the queue
+     */
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final Runnable rejection;
+        private final HttpConstant.Priority priority;
+        private final long sequence;
+        private final long enqueueTime;
+
+        private TimedTask(Runnable task, Runnable rejection, HttpConstant.Priority priority, long sequence) {
+            this.task = task;
+            this.rejection = rejection;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueueTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public void run() {
+            recordWaitTime(System.currentTimeMillis() - enqueueTime);
+            task.run();
+        }
+
+        private void reject() {
+            rejectedCount.incrementAndGet();
+            if (rejection != null) {
+                rejection.run();
+            }
+        }
+    }
+
+    /**
+     * Priority queue ordered by priority then FIFO, when full a new task drops the queued task
+     * of the lowest priority if its own priority is higher, otherwise it is refused
+     */
+    private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private BoundedPriorityQueue(int capacity) {
+            super(Math.min(capacity, 11), new Comparator<Runnable>() {
+                @Override
+                public int compare(Runnable r1, Runnable r2) {
+                    TimedTask t1 = (TimedTask) r1;
+                    TimedTask t2 = (TimedTask) r2;
+                    if (t1.priority != t2.priority) {
+                        return t2.priority.ordinal() - t1.priority.ordinal();
+                    }
+                    return t1.sequence < t2.sequence ? -1 : (t1.sequence == t2.sequence ? 0 : 1);
+                }
+            });
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            Runnable dropped = null;
+            synchronized (this) {
+                if (size() >= capacity) {
+                    Runnable lowest = null;
+                    for (Runnable queued : this) {
+                        if (lowest == null || comparator().compare(queued, lowest) > 0) {
+                            lowest = queued;
+                        }
+                    }
+                    if (lowest != null && comparator().compare(runnable, lowest) >= 0) {
+                        // nothing of lower priority to drop
+                        return false;
+                    }
+                    if (lowest != null && remove(lowest)) {
+                        dropped = lowest;
+                    }
+                }
+                super.offer(runnable);
+            }
+            if (dropped != null) {
+                ((TimedTask) dropped).reject();
+            }
+            return true;
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+
+    /**
+     * Queue is full of tasks of higher or the same priority, reject the new one
+     */
+    private static final class RejectedHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            ((TimedTask) r).reject();
+        }
+    }
+
+    /**
+     * Thread factory with thread priority
+     */
+    private static final class WorkThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix;
+        private final int priority;
+
+        private WorkThreadFactory(String namePrefix, int priority) {
+            this.namePrefix = namePrefix;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(priority);
+                    r.run();
+                }
+            }, namePrefix + threadNumber.getAndIncrement());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.volar;
+
+/**
+ * Snapshot of the request preparation worker pool, use it to size
+ * {@link io.volar.configuration.VolarConfiguration.Builder#workerPoolSize(int)}
+ * and {@link io.volar.configuration.VolarConfiguration.Builder#workerQueueSize(int)}
+ */
+
+public final class WorkerPoolStats {
+    private final int maxPoolSize;
+    private final int poolSize;
+    private final int activeCount;
+    private final int queueDepth;
+    private final int queueRemainingCapacity;
+    private final long executedCount;
+    private final long rejectedCount;
+    private final long totalWaitTime;
+    private final long maxWaitTime;
+
+    WorkerPoolStats(int maxPoolSize, int poolSize, int activeCount, int queueDepth, int queueRemainingCapacity,
+                    long executedCount, long rejectedCount, long totalWaitTime, long maxWaitTime) {
+        this.maxPoolSize = maxPoolSize;
+        this.poolSize = poolSize;
+        this.activeCount = activeCount;
+        this.queueDepth = queueDepth;
+        this.queueRemainingCapacity = queueRemainingCapacity;
+        this.executedCount = executedCount;
+        this.rejectedCount = rejectedCount;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueueRemainingCapacity() {
+        return queueRemainingCapacity;
+    }
+
+    public long getExecutedCount() {
+        return executedCount;
+    }
+
+    /**
+     * Tasks refused by the full queue or dropped from it for a higher priority one,
+     * their requests failed as rejected
+     *
+     * @return count
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Total time the executed tasks waited in the queue
+     *
+     * @return ms
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public long getAverageWaitTime() {
+        return executedCount == 0 ? 0 : totalWaitTime / executedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPoolStats{poolSize=" + poolSize + "/" + maxPoolSize
+                + ", active=" + activeCount
+                + ", queueDepth=" + queueDepth
+                + ", executed=" + executedCount
+                + ", rejected=" + rejectedCount
+                + ", averageWaitTime=" + getAverageWaitTime() + "ms"
+                + ", maxWaitTime=" + maxWaitTime + "ms}";
+    }
+}
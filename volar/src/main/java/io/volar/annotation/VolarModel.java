@@ -0,0 +1,22 @@
+package io.volar.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate a reflection free Gson adapter for the model with the volar-compiler
+ * annotation processor: annotationProcessor project(':volar-compiler').
+ * <p>
+ * The model needs a non private no-arg constructor, and its fields (including the inherited ones)
+ * must not be private or final, static and transient fields are ignored.
+ * {@link com.google.gson.annotations.SerializedName} is supported
+ */
+
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface VolarModel {
+}
@@ -0,0 +1,149 @@
+package io.volar.cache;
+
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hit ratio of a cache per endpoint, the method and the url without the query,
+ * the least recently seen endpoints are dropped beyond the max count
+ */
+
+public final class EndpointStats {
+    public static final int DEFAULT_MAX_ENDPOINTS = 128;
+
+    private final int maxEndpoints;
+    private final LinkedHashMap<String, Counter> counters;
+
+    EndpointStats(int maxEndpoints) {
+        this.maxEndpoints = Math.max(1, maxEndpoints);
+        counters = new LinkedHashMap<String, Counter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+                return size() > EndpointStats.this.maxEndpoints;
+            }
+        };
+    }
+
+    /**
+     * Record a lookup of the key
+     *
+     * @param key cache key, starting with the method and the url
+     * @param hit hit or not
+     */
+    synchronized void record(String key, boolean hit) {
+        Counter counter = counter(endpointOf(key));
+        counter.requestCount++;
+        if (hit) {
+            counter.hitCount++;
+        }
+    }
+
+    /**
+     * Record a hit of a lookup recorded as a miss before
+     *
+     * @param key cache key, starting with the method and the url
+     */
+    synchronized void recordLateHit(String key) {
+        counter(endpointOf(key)).hitCount++;
+    }
+
+    synchronized void clear() {
+        counters.clear();
+    }
+
+    /**
+     * Copy of the counters
+     *
+     * @return counters by endpoint, the most recently seen last
+     */
+    public synchronized Map<String, Counter> snapshot() {
+        Map<String, Counter> snapshot = new LinkedHashMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            snapshot.put(entry.getKey(), new Counter(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    private Counter counter(String endpoint) {
+        Counter counter = counters.get(endpoint);
+        if (counter == null) {
+            counter = new Counter();
+            counters.put(endpoint, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * The endpoint of a cache key, first line without the query
+     *
+     * @param key key
+     * @return endpoint
+     */
+    static String endpointOf(String key) {
+        int end = key.indexOf('\n');
+        if (end < 0) {
+            end = key.length();
+        }
+        int query = key.indexOf('?');
+        if (query >= 0 && query < end) {
+            end = query;
+        }
+        return key.substring(0, end);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("EndpointStats{");
+        boolean first = true;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Lookups and hits of an endpoint
+     */
+    public static final class Counter {
+        private long requestCount;
+        private long hitCount;
+
+        private Counter() {
+        }
+
+        private Counter(Counter counter) {
+            requestCount = counter.requestCount;
+            hitCount = counter.hitCount;
+        }
+
+        public long requestCount() {
+            return requestCount;
+        }
+
+        public long hitCount() {
+            return hitCount;
+        }
+
+        public long missCount() {
+            return requestCount - hitCount;
+        }
+
+        /**
+         * @return hits per lookup, 0 without lookups
+         */
+        public double hitRatio() {
+            return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+        }
+
+        @Override
+        public String toString() {
+            return hitCount + "/" + requestCount;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.volar.cache;
+
+
+/**
+ * In memory cache of parsed responses, entries expire after their ttl, expired ones are still
+ * served to stale reads. When the total weight exceeds the max weight the eviction is window TinyLFU,
+ * a rarely used entry is not admitted in place of a popular one, so paging through a long feed once
+ * doesn't push out the config or the profile. Hit ratios per endpoint are in {@link #endpointStats()}.
+ * Set it by {@link io.volar.configuration.VolarConfiguration.Builder#memoryCache(MemoryCache, String...)},
+ * cached data is shared by the callbacks, treat it as immutable
+ */
+
+public final class MemoryCache {
+    /**
+     * Every entry weighs 1, the max weight is the max count of entries
+     */
+    public static final Weigher ENTRY_WEIGHER = new Weigher() {
+        @Override
+        public long weigh(String key, long bodyLength) {
+            return 1;
+        }
+    };
+
+    /**
+     * Entries weigh the length of the response body, unknown length weighs 1
+     */
+    public static final Weigher BODY_LENGTH_WEIGHER = new Weigher() {
+        @Override
+        public long weigh(String key, long bodyLength) {
+            return Math.max(1, bodyLength);
+        }
+    };
+
+    private final Weigher weigher;
+    private final WindowTinyLfu<Entry> entries;
+    private final EndpointStats endpointStats = new EndpointStats(EndpointStats.DEFAULT_MAX_ENDPOINTS);
+
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+
+    /**
+     * @param maxEntries max count of entries
+     */
+    public MemoryCache(long maxEntries) {
+        this(maxEntries, ENTRY_WEIGHER);
+    }
+
+    /**
+     * @param maxWeight max total weight
+     * @param weigher   weigher of the entries
+     */
+    public MemoryCache(long maxWeight, Weigher weigher) {
+        this.weigher = weigher != null ? weigher : ENTRY_WEIGHER;
+        // the max weight is the count of entries only for the entry weigher
+        entries = new WindowTinyLfu<>(maxWeight, this.weigher == ENTRY_WEIGHER ? maxWeight : Long.MAX_VALUE);
+    }
+
+    /**
+     * Get the cached value
+     *
+     * @param key key
+     * @return value, null if missing or expired
+     */
+    public synchronized Object get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expireAt <= System.currentTimeMillis()) {
+            // expired entries are kept for stale reads until evicted
+            missCount++;
+            endpointStats.record(key, false);
+            return null;
+        }
+        hitCount++;
+        endpointStats.record(key, true);
+        return entry.value;
+    }
+
+    /**
+     * Get the cached value even if expired
+     *
+     * @param key key
+     * @return value, null if missing
+     */
+    public synchronized Object getStale(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            endpointStats.record(key, false);
+            return null;
+        }
+        hitCount++;
+        endpointStats.record(key, true);
+        return entry.value;
+    }
+
+    /**
+     * Cache a value
+     *
+     * @param key        key
+     * @param value      value
+     * @param ttl        time to live, ms
+     * @param bodyLength length of the response body for the weigher, -1 if unknown
+     */
+    public synchronized void put(String key, Object value, long ttl, long bodyLength) {
+        if (key == null || value == null || ttl <= 0) {
+            return;
+        }
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttl), weigher.weigh(key, bodyLength));
+        putCount++;
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return entries.weight();
+    }
+
+    public long maxWeight() {
+        return entries.maxWeight();
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long putCount() {
+        return putCount;
+    }
+
+    public synchronized long evictionCount() {
+        return entries.evictionCount();
+    }
+
+    /**
+     * Hit ratios per endpoint, the method and the url without the query
+     *
+     * @return stats
+     */
+    public EndpointStats endpointStats() {
+        return endpointStats;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MemoryCache{size=" + entries.size()
+                + ", weight=" + entries.weight() + "/" + entries.maxWeight()
+                + ", hit=" + hitCount
+                + ", miss=" + missCount
+                + ", eviction=" + entries.evictionCount() + "}";
+    }
+
+    /**
+     * Weight of the entries
+     */
+    public interface Weigher {
+        /**
+         * @param key        key
+         * @param bodyLength length of the response body, -1 if unknown
+         * @return weight
+         */
+        long weigh(String key, long bodyLength);
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expireAt;
+
+        private Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package io.volar.cache;
+
+
+/**
+ * Store of the validators and the parsed responses of GET requests, for the servers sending
+ * ETag or Last-Modified without cache headers. Requests send If-None-Match and If-Modified-Since
+ * from the stored validators and answer 304 with the stored response. The eviction is window TinyLFU
+ * like {@link MemoryCache}, hit ratios per endpoint are in {@link #endpointStats()}.
+ * Set it by {@link io.volar.configuration.VolarConfiguration.Builder#revalidationStore(RevalidationStore, String...)},
+ * stored data is shared by the callbacks, treat it as immutable
+ */
+
+public final class RevalidationStore {
+    private final WindowTinyLfu<Entry> entries;
+    private final EndpointStats endpointStats = new EndpointStats(EndpointStats.DEFAULT_MAX_ENDPOINTS);
+
+    private long requestCount;
+    private long notModifiedCount;
+    private long putCount;
+
+    /**
+     * @param maxEntries max count of entries
+     */
+    public RevalidationStore(int maxEntries) {
+        entries = new WindowTinyLfu<>(maxEntries, maxEntries);
+    }
+
+    /**
+     * Get the stored entry to revalidate
+     *
+     * @param key key
+     * @return entry, null if missing
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            requestCount++;
+        }
+        // a hit is recorded later by the 304
+        endpointStats.record(key, false);
+        return entry;
+    }
+
+    /**
+     * The server answered 304 for the entry
+     *
+     * @param key key
+     */
+    public synchronized void notModified(String key) {
+        notModifiedCount++;
+        endpointStats.recordLateHit(key);
+    }
+
+    /**
+     * Store a response with its validators, responses without validators are not stored
+     *
+     * @param key          key
+     * @param etag         ETag header
+     * @param lastModified Last-Modified header
+     * @param value        value
+     */
+    public synchronized void put(String key, String etag, String lastModified, Object value) {
+        if (key == null || value == null) {
+            return;
+        }
+        if (etag == null && lastModified == null) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry(etag, lastModified, value), 1);
+        putCount++;
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int maxEntries() {
+        return (int) entries.maxWeight();
+    }
+
+    /**
+     * @return count of the requests sent with validators
+     */
+    public synchronized long requestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return count of the requests answered 304
+     */
+    public synchronized long notModifiedCount() {
+        return notModifiedCount;
+    }
+
+    public synchronized long putCount() {
+        return putCount;
+    }
+
+    public synchronized long evictionCount() {
+        return entries.evictionCount();
+    }
+
+    /**
+     * Hit ratios per endpoint, the method and the url without the query, a hit is a 304
+     *
+     * @return stats
+     */
+    public EndpointStats endpointStats() {
+        return endpointStats;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RevalidationStore{size=" + entries.size() + "/" + entries.maxWeight()
+                + ", request=" + requestCount
+                + ", notModified=" + notModifiedCount
+                + ", eviction=" + entries.evictionCount() + "}";
+    }
+
+    /**
+     * Validators and the stored response
+     */
+    public static final class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final Object value;
+
+        private Entry(String etag, String lastModified, Object value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+}
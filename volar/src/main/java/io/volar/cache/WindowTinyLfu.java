@@ -0,0 +1,223 @@
+package io.volar.cache;
+
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Window TinyLFU eviction, new entries enter a small LRU window, entries leaving the window
+ * are admitted to the main segmented LRU only if they are accessed more often than its victim.
+ * A scan fills the window and the probation segment but can't push out the popular entries.
+ * Not thread safe, the caches guard it
+ *
+ * @param <V> value
+ */
+
+final class WindowTinyLfu<V> {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final long maxWeight;
+    private final long maxWindowWeight;
+    private final long maxMainWeight;
+    private final long maxProtectedWeight;
+    private final FrequencySketch sketch;
+    private final HashMap<String, Node<V>> nodes = new HashMap<>();
+    private final LinkedHashMap<String, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    private long evictionCount;
+
+    /**
+     * @param maxWeight       max total weight
+     * @param expectedEntries expected count of the entries, sizes the frequency sketch
+     */
+    WindowTinyLfu(long maxWeight, long expectedEntries) {
+        this.maxWeight = Math.max(1, maxWeight);
+        maxWindowWeight = Math.max(1, this.maxWeight * WINDOW_PERCENT / 100);
+        maxMainWeight = Math.max(0, this.maxWeight - maxWindowWeight);
+        maxProtectedWeight = maxMainWeight * PROTECTED_PERCENT / 100;
+        sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * Get the value and record the access
+     *
+     * @param key key
+     * @return value, null if missing
+     */
+    V get(String key) {
+        sketch.increment(key);
+        Node<V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        switch (node.segment) {
+            case WINDOW:
+                window.get(key);
+                break;
+            case PROBATION:
+                // accessed again, promote
+                probation.remove(key);
+                probationWeight -= node.weight;
+                protectedSegment.put(key, node);
+                protectedWeight += node.weight;
+                node.segment = Segment.PROTECTED;
+                demoteProtected();
+                break;
+            default:
+                protectedSegment.get(key);
+                break;
+        }
+        return node.value;
+    }
+
+    /**
+     * Put a value, the eviction may drop it right away if it's not popular enough
+     *
+     * @param key    key
+     * @param value  value
+     * @param weight weight
+     */
+    void put(String key, V value, long weight) {
+        sketch.increment(key);
+        remove(key);
+        if (weight > maxWeight) {
+            return;
+        }
+        Node<V> node = new Node<>(key, value, weight);
+        nodes.put(key, node);
+        window.put(key, node);
+        windowWeight += weight;
+        evict();
+    }
+
+    V remove(String key) {
+        Node<V> node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        return node.value;
+    }
+
+    void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    long weight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    long maxWeight() {
+        return maxWeight;
+    }
+
+    long evictionCount() {
+        return evictionCount;
+    }
+
+    private void evict() {
+        while (windowWeight > maxWindowWeight) {
+            Node<V> candidate = eldest(window);
+            window.remove(candidate.key);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+    }
+
+    /**
+     * The candidate leaving the window enters the probation segment if there is room,
+     * otherwise it has to be more popular than the victims it pushes out
+     *
+     * @param candidate candidate
+     */
+    private void admit(Node<V> candidate) {
+        if (candidate.weight > maxMainWeight) {
+            nodes.remove(candidate.key);
+            evictionCount++;
+            return;
+        }
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probationWeight + protectedWeight + candidate.weight > maxMainWeight) {
+            Node<V> victim = !probation.isEmpty() ? eldest(probation) : eldest(protectedSegment);
+            if (victim == null || candidateFrequency <= sketch.frequency(victim.key)) {
+                nodes.remove(candidate.key);
+                evictionCount++;
+                return;
+            }
+            nodes.remove(victim.key);
+            unlink(victim);
+            evictionCount++;
+        }
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.key, candidate);
+        probationWeight += candidate.weight;
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > maxProtectedWeight && !protectedSegment.isEmpty()) {
+            Node<V> node = eldest(protectedSegment);
+            protectedSegment.remove(node.key);
+            protectedWeight -= node.weight;
+            node.segment = Segment.PROBATION;
+            probation.put(node.key, node);
+            probationWeight += node.weight;
+        }
+    }
+
+    private void unlink(Node<V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node.key);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node.key);
+                probationWeight -= node.weight;
+                break;
+            default:
+                protectedSegment.remove(node.key);
+                protectedWeight -= node.weight;
+                break;
+        }
+    }
+
+    private static <V> Node<V> eldest(LinkedHashMap<String, Node<V>> segment) {
+        Iterator<Map.Entry<String, Node<V>>> iterator = segment.entrySet().iterator();
+        return iterator.hasNext() ? iterator.next().getValue() : null;
+    }
+
+    private enum Segment {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    private static final class Node<V> {
+        private final String key;
+        private final V value;
+        private final long weight;
+        private Segment segment = Segment.WINDOW;
+
+        private Node(String key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.volar.callback;
+
+
+import io.volar.HttpResponse;
+
+/**
+ * Binary data callback, data decoded by a {@link io.volar.converter.BinaryDecoder}
+ */
+
+public interface BinaryCallback<T> extends BaseCallback {
+    void onSuccess(HttpResponse response, T t);
+}
@@ -0,0 +1,12 @@
+package io.volar.callback;
+
+
+import io.volar.HttpResponse;
+
+/**
+ * Raw bytes callback, the body is not decoded to string
+ */
+
+public interface BytesCallback extends BaseCallback {
+    void onSuccess(HttpResponse response, byte[] bytes);
+}
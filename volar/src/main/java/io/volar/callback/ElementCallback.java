@@ -0,0 +1,33 @@
+package io.volar.callback;
+
+
+import java.util.List;
+
+import io.volar.HttpResponse;
+
+/**
+ * Json array callback receiving the elements in batches while the body is read.
+ * With an envelope filter the data array of the envelope is streamed, the elements are delivered
+ * as read and the filter decides between complete and failure after the whole envelope.
+ * With a custom filter the body is read as a string and filtered first, then the elements of the
+ * filtered string are delivered
+ */
+
+public interface ElementCallback<T> extends BaseCallback {
+    /**
+     * Called in the worker thread for every batch decoded from the body
+     *
+     * @param response response
+     * @param elements batch of elements, a new list each time
+     * @return false to stop reading the rest of the body
+     */
+    boolean onElements(HttpResponse response, List<T> elements);
+
+    /**
+     * Called in main thread after the last batch
+     *
+     * @param response response
+     * @param count    count of the elements delivered
+     */
+    void onComplete(HttpResponse response, int count);
+}
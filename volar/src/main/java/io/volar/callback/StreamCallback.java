@@ -0,0 +1,29 @@
+package io.volar.callback;
+
+
+import java.io.IOException;
+
+import io.volar.HttpResponse;
+import okio.BufferedSource;
+
+/**
+ * Body stream callback, the consumer reads the live body
+ */
+
+public interface StreamCallback extends BaseCallback {
+    /**
+     * Consume the body in the worker thread, the source is closed after,
+     * throw to fail the request
+     *
+     * @param response response
+     * @param source   body source
+     */
+    void onStream(HttpResponse response, BufferedSource source) throws IOException;
+
+    /**
+     * Called in main thread after the body is consumed
+     *
+     * @param response response
+     */
+    void onSuccess(HttpResponse response);
+}
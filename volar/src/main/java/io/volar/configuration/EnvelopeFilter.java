@@ -0,0 +1,43 @@
+package io.volar.configuration;
+
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+import io.volar.HttpResponse;
+
+/**
+ * Streaming response envelope filter, e.g. {"code": 0, "msg": "ok", "data": {...}},
+ * the envelope fields are read while streaming and the data value is decoded straight
+ * to the data class, works with the object and object list callbacks
+ */
+
+public interface EnvelopeFilter {
+    /**
+     * Name of the envelope field holding the data
+     *
+     * @return name
+     */
+    String dataName();
+
+    /**
+     * Read an envelope field other than the data, the value must be consumed,
+     * e.g. {@link JsonReader#nextInt()} or {@link JsonReader#skipValue()}
+     *
+     * @param httpResponse response to record the field to, e.g. {@link io.volar.HttpResponse#message}
+     * @param name         field name
+     * @param reader       reader positioned at the value
+     */
+    void readField(HttpResponse httpResponse, String name, JsonReader reader) throws IOException;
+
+    /**
+     * The whole envelope is read, the data is in {@link io.volar.HttpResponse#getResponseData()},
+     * null if it failed to decode, it is a parse failure only if the response is still successful after,
+     * custom define the {@link io.volar.HttpResponse#code} and {@link io.volar.HttpResponse#success},
+     * custom define the error and error message by use{@link io.volar.HttpResponse#setError(int)}
+     *
+     * @param httpResponse response
+     */
+    void filter(HttpResponse httpResponse);
+}
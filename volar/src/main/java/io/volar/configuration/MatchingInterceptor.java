@@ -0,0 +1,29 @@
+package io.volar.configuration;
+
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Run the interceptor only for the matched requests, others go straight down the chain
+ */
+
+final class MatchingInterceptor implements Interceptor {
+    private final Interceptor interceptor;
+    private final RequestMatcher matcher;
+
+    MatchingInterceptor(Interceptor interceptor, RequestMatcher matcher) {
+        this.interceptor = interceptor;
+        this.matcher = matcher;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (matcher.matches(chain.request())) {
+            return interceptor.intercept(chain);
+        }
+        return chain.proceed(chain.request());
+    }
+}
@@ -0,0 +1,58 @@
+package io.volar.configuration;
+
+
+/**
+ * Request body compression, only text and json bodies at least as large as the
+ * threshold are compressed, bodies of unknown length are always compressed
+ */
+
+public final class RequestCompression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * Never compress, use it to turn off the compression of a host or a request
+     */
+    public static final RequestCompression NONE = new RequestCompression(null, Long.MAX_VALUE);
+
+    private final String encoding;
+    private final long threshold;
+
+    private RequestCompression(String encoding, long threshold) {
+        this.encoding = encoding;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Gzip compression
+     *
+     * @param threshold min body length to compress, bytes
+     * @return compression
+     */
+    public static RequestCompression gzip(long threshold) {
+        return new RequestCompression(GZIP, Math.max(0, threshold));
+    }
+
+    /**
+     * Deflate (zlib) compression
+     *
+     * @param threshold min body length to compress, bytes
+     * @return compression
+     */
+    public static RequestCompression deflate(long threshold) {
+        return new RequestCompression(DEFLATE, Math.max(0, threshold));
+    }
+
+    /**
+     * Content-Encoding of the compressed body, null if never compress
+     *
+     * @return encoding
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+}
@@ -0,0 +1,71 @@
+package io.volar.configuration;
+
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+/**
+ * Decide whether an interceptor runs for a request
+ */
+
+public abstract class RequestMatcher {
+
+    public abstract boolean matches(Request request);
+
+    /**
+     * Match the host, "*.example.com" also matches the sub domains
+     *
+     * @param host host
+     * @return matcher
+     */
+    public static RequestMatcher host(final String host) {
+        final String lowerHost = host.toLowerCase();
+        return new RequestMatcher() {
+            @Override
+            public boolean matches(Request request) {
+                return matchHost(request.url(), lowerHost);
+            }
+        };
+    }
+
+    /**
+     * Match the start of the encoded path, e.g. "/api/v2/"
+     *
+     * @param pathPrefix path prefix
+     * @return matcher
+     */
+    public static RequestMatcher pathPrefix(final String pathPrefix) {
+        return new RequestMatcher() {
+            @Override
+            public boolean matches(Request request) {
+                return request.url().encodedPath().startsWith(pathPrefix);
+            }
+        };
+    }
+
+    /**
+     * Match both the host and the start of the encoded path
+     *
+     * @param host       host
+     * @param pathPrefix path prefix
+     * @return matcher
+     */
+    public static RequestMatcher hostAndPathPrefix(final String host, final String pathPrefix) {
+        final String lowerHost = host.toLowerCase();
+        return new RequestMatcher() {
+            @Override
+            public boolean matches(Request request) {
+                HttpUrl url = request.url();
+                return matchHost(url, lowerHost) && url.encodedPath().startsWith(pathPrefix);
+            }
+        };
+    }
+
+    private static boolean matchHost(HttpUrl url, String host) {
+        if (host.startsWith("*.")) {
+            String domain = host.substring(1);
+            return url.host().endsWith(domain) || url.host().equals(host.substring(2));
+        }
+        return url.host().equals(host);
+    }
+}
@@ -1,16 +1,31 @@
 package io.volar.configuration;
 
+import android.os.Process;
 import android.text.TextUtils;
 
 import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.net.ssl.HostnameVerifier;
 
 import io.volar.HttpConstant;
+import io.volar.cache.MemoryCache;
+import io.volar.cache.RevalidationStore;
+import io.volar.converter.Converter;
+import io.volar.converter.GsonConverter;
 import io.volar.https.SslSocketFactoryParams;
+import io.volar.log.LogSink;
+import io.volar.log.LogcatSink;
 import okhttp3.Cache;
 import okhttp3.CookieJar;
 import okhttp3.Dns;
+import okhttp3.Interceptor;
 import okhttp3.internal.tls.OkHostnameVerifier;
 
 /**
@@ -23,13 +38,33 @@ public final class VolarConfiguration {
     private String logTag;
     private boolean logHeader;
     private HttpConstant.LogLevel logLevel;
+    private List<LogSink> logSinks;
+    private int logBufferSize;
+    private Map<HttpConstant.LogCategory, Float> logSamplingRates;
     private CommonHeaders commonHeaders;
     private CustomFilter customFilter;
+    private EnvelopeFilter envelopeFilter;
     private CustomErrorMessages customErrorMessages;
+    private Converter converter;
     private boolean trustAllHttps;
     private boolean logParamsBeforeFilter;
     private boolean logResponseBeforeFilter;
+    private boolean logResponseBody;
+    // worker pool
+    private int workerPoolSize;
+    private int workerQueueSize;
+    private int workerThreadPriority;
+    private boolean holdLowPriorityWhileHighRunning;
     // okhttp
+    private int derivedClientCacheSize;
+    private int maxRequests;
+    private int maxRequestsPerHost;
+    private Map<String, Integer> hostMaxRequests;
+    private ExecutorService dispatcherExecutor;
+    private RequestCompression requestCompression;
+    private Map<String, RequestCompression> hostRequestCompressions;
+    private List<Interceptor> interceptors;
+    private List<Interceptor> networkInterceptors;
     private long connectTimeout;
     private long readTimeout;
     private long writeTimeout;
@@ -41,6 +76,10 @@ public final class VolarConfiguration {
     private boolean followSslRedirects;
     private boolean followRedirects;
     private Cache cache;
+    private MemoryCache memoryCache;
+    private List<String> memoryCacheKeyHeaders;
+    private RevalidationStore revalidationStore;
+    private List<String> revalidationKeyHeaders;
     private Proxy proxy;
 
     private VolarConfiguration(Builder builder) {
@@ -48,12 +87,32 @@ public final class VolarConfiguration {
         logTag = builder.logTag;
         logHeader = builder.logHeader;
         logLevel = builder.logLevel;
+        logSinks = Collections.unmodifiableList(builder.logSinks.isEmpty()
+                ? Collections.<LogSink>singletonList(new LogcatSink()) : new ArrayList<>(builder.logSinks));
+        logBufferSize = builder.logBufferSize;
+        logSamplingRates = new HashMap<>(builder.logSamplingRates);
         commonHeaders = builder.commonHeaders;
         customFilter = builder.customFilter;
+        envelopeFilter = builder.envelopeFilter;
         customErrorMessages = builder.customErrorMessages;
+        converter = builder.converter;
         trustAllHttps = builder.trustAllHttps;
         logParamsBeforeFilter = builder.logParamsBeforeFilter;
         logResponseBeforeFilter = builder.logResponseBeforeFilter;
+        logResponseBody = builder.logResponseBody;
+        workerPoolSize = builder.workerPoolSize;
+        workerQueueSize = builder.workerQueueSize;
+        workerThreadPriority = builder.workerThreadPriority;
+        holdLowPriorityWhileHighRunning = builder.holdLowPriorityWhileHighRunning;
+        derivedClientCacheSize = builder.derivedClientCacheSize;
+        maxRequests = builder.maxRequests;
+        maxRequestsPerHost = builder.maxRequestsPerHost;
+        hostMaxRequests = new HashMap<>(builder.hostMaxRequests);
+        dispatcherExecutor = builder.dispatcherExecutor;
+        requestCompression = builder.requestCompression;
+        hostRequestCompressions = new HashMap<>(builder.hostRequestCompressions);
+        interceptors = Collections.unmodifiableList(new ArrayList<>(builder.interceptors));
+        networkInterceptors = Collections.unmodifiableList(new ArrayList<>(builder.networkInterceptors));
         connectTimeout = builder.connectTimeout;
         readTimeout = builder.readTimeout;
         writeTimeout = builder.writeTimeout;
@@ -65,6 +124,10 @@ public final class VolarConfiguration {
         followSslRedirects = builder.followSslRedirects;
         followRedirects = builder.followRedirects;
         cache = builder.cache;
+        memoryCache = builder.memoryCache;
+        memoryCacheKeyHeaders = builder.memoryCacheKeyHeaders;
+        revalidationStore = builder.revalidationStore;
+        revalidationKeyHeaders = builder.revalidationKeyHeaders;
         proxy = builder.proxy;
     }
 
@@ -84,6 +147,25 @@ public final class VolarConfiguration {
         return logLevel;
     }
 
+    public List<LogSink> getLogSinks() {
+        return logSinks;
+    }
+
+    public int getLogBufferSize() {
+        return logBufferSize;
+    }
+
+    /**
+     * Sampling rate of the non error logs of the category
+     *
+     * @param category category
+     * @return rate, 0 to 1
+     */
+    public float getLogSamplingRate(HttpConstant.LogCategory category) {
+        Float rate = logSamplingRates.get(category);
+        return rate != null ? rate : 1f;
+    }
+
     public CommonHeaders getCommonHeaders() {
         return commonHeaders;
     }
@@ -92,10 +174,18 @@ public final class VolarConfiguration {
         return customFilter;
     }
 
+    public EnvelopeFilter getEnvelopeFilter() {
+        return envelopeFilter;
+    }
+
     public CustomErrorMessages getCustomErrorMessages() {
         return customErrorMessages;
     }
 
+    public Converter getConverter() {
+        return converter;
+    }
+
     public boolean isTrustAllHttps() {
         return trustAllHttps;
     }
@@ -108,6 +198,90 @@ public final class VolarConfiguration {
         return logResponseBeforeFilter;
     }
 
+    public boolean isLogResponseBody() {
+        return logResponseBody;
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    public int getWorkerQueueSize() {
+        return workerQueueSize;
+    }
+
+    public int getWorkerThreadPriority() {
+        return workerThreadPriority;
+    }
+
+    public boolean isHoldLowPriorityWhileHighRunning() {
+        return holdLowPriorityWhileHighRunning;
+    }
+
+    public int getDerivedClientCacheSize() {
+        return derivedClientCacheSize;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * Default max requests of a host
+     *
+     * @return max requests
+     */
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * Max requests of the host, the override or the default one
+     *
+     * @param host host
+     * @return max requests
+     */
+    public int getMaxRequestsPerHost(String host) {
+        Integer max = hostMaxRequests.get(host);
+        return max != null ? max : maxRequestsPerHost;
+    }
+
+    /**
+     * The max requests of all hosts, including the overrides
+     *
+     * @return max requests
+     */
+    public int getMaxRequestsOfAnyHost() {
+        int max = maxRequestsPerHost;
+        for (Integer hostMax : hostMaxRequests.values()) {
+            max = Math.max(max, hostMax);
+        }
+        return max;
+    }
+
+    public ExecutorService getDispatcherExecutor() {
+        return dispatcherExecutor;
+    }
+
+    /**
+     * Request body compression of the host, the override or the default one
+     *
+     * @param host host
+     * @return compression
+     */
+    public RequestCompression getRequestCompression(String host) {
+        RequestCompression compression = hostRequestCompressions.get(host);
+        return compression != null ? compression : requestCompression;
+    }
+
+    public List<Interceptor> getInterceptors() {
+        return interceptors;
+    }
+
+    public List<Interceptor> getNetworkInterceptors() {
+        return networkInterceptors;
+    }
+
     public long getConnectTimeout() {
         return connectTimeout;
     }
@@ -152,6 +326,32 @@ public final class VolarConfiguration {
         return cache;
     }
 
+    public MemoryCache getMemoryCache() {
+        return memoryCache;
+    }
+
+    /**
+     * Request headers which are part of the memory cache key
+     *
+     * @return header names
+     */
+    public List<String> getMemoryCacheKeyHeaders() {
+        return memoryCacheKeyHeaders;
+    }
+
+    public RevalidationStore getRevalidationStore() {
+        return revalidationStore;
+    }
+
+    /**
+     * Request headers which are part of the revalidation store key
+     *
+     * @return header names
+     */
+    public List<String> getRevalidationKeyHeaders() {
+        return revalidationKeyHeaders;
+    }
+
     public Proxy getProxy() {
         return proxy;
     }
@@ -164,9 +364,14 @@ public final class VolarConfiguration {
         private boolean logEnabled;
         private String logTag;
         private HttpConstant.LogLevel logLevel;
+        private List<LogSink> logSinks = new ArrayList<>();
+        private int logBufferSize;
+        private Map<HttpConstant.LogCategory, Float> logSamplingRates = new HashMap<>();
         private CommonHeaders commonHeaders;
         private CustomFilter customFilter;
+        private EnvelopeFilter envelopeFilter;
         private CustomErrorMessages customErrorMessages;
+        private Converter converter;
         private boolean trustAllHttps;
         private long connectTimeout;
         private long readTimeout;
@@ -179,15 +384,35 @@ public final class VolarConfiguration {
         private boolean followSslRedirects;
         private boolean followRedirects;
         private Cache cache;
+        private MemoryCache memoryCache;
+        private List<String> memoryCacheKeyHeaders = Collections.emptyList();
+        private RevalidationStore revalidationStore;
+        private List<String> revalidationKeyHeaders = Collections.emptyList();
         private Proxy proxy;
         private boolean logParamsBeforeFilter;
         private boolean logResponseBeforeFilter;
         private boolean logHeader;
+        private boolean logResponseBody;
+        private int workerPoolSize;
+        private int workerQueueSize;
+        private int workerThreadPriority;
+        private int derivedClientCacheSize;
+        private boolean holdLowPriorityWhileHighRunning;
+        private int maxRequests;
+        private int maxRequestsPerHost;
+        private Map<String, Integer> hostMaxRequests = new HashMap<>();
+        private ExecutorService dispatcherExecutor;
+        private RequestCompression requestCompression = RequestCompression.NONE;
+        private Map<String, RequestCompression> hostRequestCompressions = new HashMap<>();
+        private List<Interceptor> interceptors = new ArrayList<>();
+        private List<Interceptor> networkInterceptors = new ArrayList<>();
 
         public Builder() {
             logEnabled = true;
             logTag = HttpConstant.DEFAULT_LOG_TAG;
             logLevel = HttpConstant.LogLevel.I;
+            logBufferSize = HttpConstant.DEFAULT_LOG_BUFFER_SIZE;
+            converter = GsonConverter.create();
             connectTimeout = HttpConstant.DEFAULT_CONNECT_TIMEOUT;
             readTimeout = HttpConstant.DEFAULT_READ_TIMEOUT;
             writeTimeout = HttpConstant.DEFAULT_WRITE_TIMEOUT;
@@ -201,12 +426,23 @@ public final class VolarConfiguration {
             logResponseBeforeFilter = false;
             logParamsBeforeFilter = false;
             logHeader = true;
+            logResponseBody = true;
+            workerPoolSize = HttpConstant.DEFAULT_WORKER_POOL_SIZE;
+            workerQueueSize = HttpConstant.DEFAULT_WORKER_QUEUE_SIZE;
+            workerThreadPriority = Process.THREAD_PRIORITY_BACKGROUND;
+            derivedClientCacheSize = HttpConstant.DEFAULT_DERIVED_CLIENT_CACHE_SIZE;
+            maxRequests = HttpConstant.DEFAULT_MAX_REQUESTS;
+            maxRequestsPerHost = HttpConstant.DEFAULT_MAX_REQUESTS_PER_HOST;
         }
 
         private Builder(VolarConfiguration configuration) {
             logEnabled = configuration.logEnabled;
             logTag = configuration.logTag;
             logLevel = configuration.logLevel;
+            logSinks = new ArrayList<>(configuration.logSinks);
+            logBufferSize = configuration.logBufferSize;
+            logSamplingRates = new HashMap<>(configuration.logSamplingRates);
+            converter = configuration.converter;
             connectTimeout = configuration.connectTimeout;
             readTimeout = configuration.readTimeout;
             writeTimeout = configuration.writeTimeout;
@@ -220,6 +456,24 @@ public final class VolarConfiguration {
             logResponseBeforeFilter = configuration.logResponseBeforeFilter;
             logParamsBeforeFilter = configuration.logParamsBeforeFilter;
             logHeader = configuration.logHeader;
+            logResponseBody = configuration.logResponseBody;
+            workerPoolSize = configuration.workerPoolSize;
+            workerQueueSize = configuration.workerQueueSize;
+            workerThreadPriority = configuration.workerThreadPriority;
+            derivedClientCacheSize = configuration.derivedClientCacheSize;
+            holdLowPriorityWhileHighRunning = configuration.holdLowPriorityWhileHighRunning;
+            maxRequests = configuration.maxRequests;
+            maxRequestsPerHost = configuration.maxRequestsPerHost;
+            hostMaxRequests = new HashMap<>(configuration.hostMaxRequests);
+            dispatcherExecutor = configuration.dispatcherExecutor;
+            memoryCache = configuration.memoryCache;
+            memoryCacheKeyHeaders = configuration.memoryCacheKeyHeaders;
+            revalidationStore = configuration.revalidationStore;
+            revalidationKeyHeaders = configuration.revalidationKeyHeaders;
+            requestCompression = configuration.requestCompression;
+            hostRequestCompressions = new HashMap<>(configuration.hostRequestCompressions);
+            interceptors = new ArrayList<>(configuration.interceptors);
+            networkInterceptors = new ArrayList<>(configuration.networkInterceptors);
         }
 
         public Builder logEnabled(boolean val) {
@@ -244,11 +498,36 @@ public final class VolarConfiguration {
             return this;
         }
 
+        /**
+         * Unwrap the response envelope while streaming the body, the data value is decoded
+         * straight to the data class of the object and object list callbacks
+         *
+         * @param val envelope filter
+         * @return builder
+         */
+        public Builder envelopeFilter(EnvelopeFilter val) {
+            envelopeFilter = val;
+            return this;
+        }
+
         public Builder customErrorMessages(CustomErrorMessages val) {
             customErrorMessages = val;
             return this;
         }
 
+        /**
+         * Json converter serializing the params and parsing the object data, default Gson
+         *
+         * @param val converter
+         * @return builder
+         */
+        public Builder converter(Converter val) {
+            if (val != null) {
+                converter = val;
+            }
+            return this;
+        }
+
         public Builder connectTimeout(long val) {
             if (val > 0) {
                 connectTimeout = val;
@@ -316,6 +595,41 @@ public final class VolarConfiguration {
             return this;
         }
 
+        /**
+         * Memory cache of the parsed responses, used by the requests asking for it by
+         * {@code memoryCache(long)} of the request builder,
+         * entries are keyed by method, url, data type and the values of the key headers
+         *
+         * @param val        memory cache
+         * @param keyHeaders request headers making responses differ, like Authorization
+         * @return builder
+         */
+        public Builder memoryCache(MemoryCache val, String... keyHeaders) {
+            memoryCache = val;
+            memoryCacheKeyHeaders = keyHeaders != null
+                    ? Collections.unmodifiableList(Arrays.asList(keyHeaders.clone()))
+                    : Collections.<String>emptyList();
+            return this;
+        }
+
+        /**
+         * Revalidation store of the parsed responses with ETag or Last-Modified, GET requests send
+         * the stored validators and take the stored response on 304, unless they opt out by
+         * {@code revalidate(false)} of the request builder,
+         * entries are keyed by url, data type and the values of the key headers
+         *
+         * @param val        revalidation store
+         * @param keyHeaders request headers making responses differ, like Authorization
+         * @return builder
+         */
+        public Builder revalidationStore(RevalidationStore val, String... keyHeaders) {
+            revalidationStore = val;
+            revalidationKeyHeaders = keyHeaders != null
+                    ? Collections.unmodifiableList(Arrays.asList(keyHeaders.clone()))
+                    : Collections.<String>emptyList();
+            return this;
+        }
+
         public Builder proxy(Proxy val) {
             proxy = val;
             return this;
@@ -341,11 +655,269 @@ public final class VolarConfiguration {
             return this;
         }
 
+        /**
+         * Add a log sink, logs are written by a background writer thread,
+         * default logcat only, only used by the configuration passed to
+         * {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val sink, like {@link io.volar.log.RotatingFileSink}
+         * @return builder
+         */
+        public Builder addLogSink(LogSink val) {
+            if (val != null) {
+                logSinks.add(val);
+            }
+            return this;
+        }
+
+        /**
+         * Size of the log buffer, logs are dropped and counted when it is full
+         *
+         * @param val size
+         * @return builder
+         */
+        public Builder logBufferSize(int val) {
+            if (val > 0) {
+                logBufferSize = val;
+            }
+            return this;
+        }
+
+        /**
+         * Keep only a part of the non error logs of the category, error logs are always kept
+         *
+         * @param category category
+         * @param val      rate, 0 to 1, default 1
+         * @return builder
+         */
+        public Builder logSampling(HttpConstant.LogCategory category, float val) {
+            if (category != null) {
+                logSamplingRates.put(category, Math.max(0f, Math.min(1f, val)));
+            }
+            return this;
+        }
+
         public Builder logHeader(boolean val) {
             logHeader = val;
             return this;
         }
 
+        /**
+         * Log the response body or not, when not logged and without custom filter,
+         * object data is parsed straight from the body stream
+         *
+         * @param val log or not
+         * @return builder
+         */
+        public Builder logResponseBody(boolean val) {
+            logResponseBody = val;
+            return this;
+        }
+
+        /**
+         * Threads preparing the requests (filter, params serialization, logging),
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val pool size
+         * @return builder
+         */
+        public Builder workerPoolSize(int val) {
+            if (val > 0) {
+                workerPoolSize = val;
+            }
+            return this;
+        }
+
+        /**
+         * Max requests waiting for a worker, when full a request drops the queued one of the lowest priority
+         * if its own is higher, the request refused or dropped fails as rejected
+         *
+         * @param val queue size
+         * @return builder
+         */
+        public Builder workerQueueSize(int val) {
+            if (val > 0) {
+                workerQueueSize = val;
+            }
+            return this;
+        }
+
+        /**
+         * Worker thread priority, one of {@link Process}#THREAD_PRIORITY_*
+         *
+         * @param val priority
+         * @return builder
+         */
+        public Builder workerThreadPriority(int val) {
+            workerThreadPriority = val;
+            return this;
+        }
+
+        /**
+         * Hold back the low priority requests while high priority ones are running,
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val hold or not
+         * @return builder
+         */
+        public Builder holdLowPriorityWhileHighRunning(boolean val) {
+            holdLowPriorityWhileHighRunning = val;
+            return this;
+        }
+
+        /**
+         * Max OkHttpClients kept for requests with a separate configuration,
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val cache size
+         * @return builder
+         */
+        public Builder derivedClientCacheSize(int val) {
+            if (val > 0) {
+                derivedClientCacheSize = val;
+            }
+            return this;
+        }
+
+        /**
+         * Max requests running at the same time,
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val max requests
+         * @return builder
+         */
+        public Builder maxRequests(int val) {
+            if (val > 0) {
+                maxRequests = val;
+            }
+            return this;
+        }
+
+        /**
+         * Default max requests running at the same time for one host,
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val max requests
+         * @return builder
+         */
+        public Builder maxRequestsPerHost(int val) {
+            if (val > 0) {
+                maxRequestsPerHost = val;
+            }
+            return this;
+        }
+
+        /**
+         * Max requests running at the same time for the host, overrides {@link #maxRequestsPerHost(int)},
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param host host, like "api.example.com"
+         * @param val  max requests
+         * @return builder
+         */
+        public Builder maxRequestsPerHost(String host, int val) {
+            if (!TextUtils.isEmpty(host) && val > 0) {
+                hostMaxRequests.put(host, val);
+            }
+            return this;
+        }
+
+        /**
+         * Executor running the OkHttp calls,
+         * only used by the configuration passed to {@link io.volar.Volar#init(VolarConfiguration)}
+         *
+         * @param val executor
+         * @return builder
+         */
+        public Builder dispatcherExecutor(ExecutorService val) {
+            dispatcherExecutor = val;
+            return this;
+        }
+
+        /**
+         * Compress the text and json request bodies, default none, make sure the server
+         * accepts the Content-Encoding
+         *
+         * @param val compression, like {@link RequestCompression#gzip(long)}
+         * @return builder
+         */
+        public Builder requestCompression(RequestCompression val) {
+            if (val != null) {
+                requestCompression = val;
+            }
+            return this;
+        }
+
+        /**
+         * Override the request body compression of a host
+         *
+         * @param host host
+         * @param val  compression
+         * @return builder
+         */
+        public Builder requestCompression(String host, RequestCompression val) {
+            if (!TextUtils.isEmpty(host) && val != null) {
+                hostRequestCompressions.put(host, val);
+            }
+            return this;
+        }
+
+        /**
+         * Application interceptor, interceptors run in the order they are added
+         *
+         * @param val interceptor
+         * @return builder
+         */
+        public Builder addInterceptor(Interceptor val) {
+            if (val != null) {
+                interceptors.add(val);
+            }
+            return this;
+        }
+
+        /**
+         * Application interceptor running only for the requests matched,
+         * the others skip it
+         *
+         * @param val1 interceptor
+         * @param val2 matcher
+         * @return builder
+         */
+        public Builder addInterceptor(Interceptor val1, RequestMatcher val2) {
+            if (val1 != null) {
+                interceptors.add(val2 != null ? new MatchingInterceptor(val1, val2) : val1);
+            }
+            return this;
+        }
+
+        /**
+         * Network interceptor, interceptors run in the order they are added
+         *
+         * @param val interceptor
+         * @return builder
+         */
+        public Builder addNetworkInterceptor(Interceptor val) {
+            if (val != null) {
+                networkInterceptors.add(val);
+            }
+            return this;
+        }
+
+        /**
+         * Network interceptor running only for the requests matched,
+         * the others skip it
+         *
+         * @param val1 interceptor
+         * @param val2 matcher
+         * @return builder
+         */
+        public Builder addNetworkInterceptor(Interceptor val1, RequestMatcher val2) {
+            if (val1 != null) {
+                networkInterceptors.add(val2 != null ? new MatchingInterceptor(val1, val2) : val1);
+            }
+            return this;
+        }
+
         public VolarConfiguration build() {
             return new VolarConfiguration(this);
         }
@@ -0,0 +1,19 @@
+package io.volar.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decode binary data (protobuf, FlatBuffers...) straight from the response byte stream,
+ * for protobuf it is usually {@code Message.parseFrom(inputStream)}
+ */
+
+public interface BinaryDecoder<T> {
+    /**
+     * Decode data from the body stream, the stream is closed after
+     *
+     * @param inputStream response body stream
+     * @return data
+     */
+    T decode(InputStream inputStream) throws IOException;
+}
@@ -0,0 +1,38 @@
+package io.volar.converter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Json converter used to serialize the params and parse the object data,
+ * set it by {@link io.volar.configuration.VolarConfiguration.Builder#converter(Converter)}
+ */
+
+public interface Converter {
+    /**
+     * Serialize to json string
+     *
+     * @param value value
+     * @return json string
+     */
+    String toJson(Object value);
+
+    /**
+     * Serialize into the writer, with the same output as {@link #toJson(Object)}
+     *
+     * @param value  value
+     * @param writer writer
+     */
+    void toJson(Object value, JsonWriter writer) throws IOException;
+
+    /**
+     * Read one value of the class from the reader
+     *
+     * @param reader reader
+     * @param clazz  class
+     * @return value
+     */
+    <T> T fromJson(JsonReader reader, Class<T> clazz) throws IOException;
+}
@@ -0,0 +1,33 @@
+package io.volar.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import io.volar.annotation.VolarModel;
+
+/**
+ * Gson adapter factory looking up the adapters generated by the volar-compiler
+ * annotation processor for the classes annotated with {@link VolarModel}.
+ * Classes without a generated adapter fall back to the reflective one
+ */
+
+public final class GeneratedAdapterFactory implements TypeAdapterFactory {
+    public static final String ADAPTER_SUFFIX = "_VolarAdapter";
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (!rawType.isAnnotationPresent(VolarModel.class)) {
+            return null;
+        }
+        try {
+            Class<?> adapterClass = Class.forName(rawType.getName() + ADAPTER_SUFFIX, true,
+                    rawType.getClassLoader());
+            return (TypeAdapter<T>) adapterClass.getConstructor(Gson.class).newInstance(gson);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
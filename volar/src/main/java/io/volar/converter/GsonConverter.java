@@ -0,0 +1,75 @@
+package io.volar.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import io.volar.util.JSON;
+
+/**
+ * Default converter with the Gson of {@link JSON}, classes annotated with
+ * {@link io.volar.annotation.VolarModel} use the generated adapters instead of reflection
+ */
+
+public final class GsonConverter implements Converter {
+    private static final GsonConverter DEFAULT = new GsonConverter(JSON.getGson());
+
+    private final Gson gson;
+
+    private GsonConverter(Gson gson) {
+        this.gson = gson;
+    }
+
+    public static GsonConverter create() {
+        return DEFAULT;
+    }
+
+    /**
+     * Converter with a custom Gson, register {@link GeneratedAdapterFactory} in it to use the
+     * generated adapters
+     *
+     * @param gson gson
+     * @return converter
+     */
+    public static GsonConverter create(Gson gson) {
+        if (gson == null) {
+            return DEFAULT;
+        }
+        return new GsonConverter(gson);
+    }
+
+    @Override
+    public String toJson(Object value) {
+        try {
+            return gson.toJson(value);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public void toJson(Object value, JsonWriter writer) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+            return;
+        }
+        try {
+            // applies the serializeNulls and html escaping settings of the gson like toJson(Object)
+            gson.toJson(value, value.getClass(), writer);
+        } catch (JsonIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> T fromJson(JsonReader reader, Class<T> clazz) throws IOException {
+        return gson.getAdapter(clazz).read(reader);
+    }
+}
@@ -0,0 +1,23 @@
+package io.volar.log;
+
+
+/**
+ * Destination of the logs, called only from the single log writer thread
+ */
+
+public interface LogSink {
+    /**
+     * Write a log
+     *
+     * @param time     time the log was made, ms
+     * @param priority android log priority, like {@link android.util.Log#INFO}
+     * @param tag      tag
+     * @param message  message
+     */
+    void write(long time, int priority, String tag, String message);
+
+    /**
+     * Called after every batch of logs written
+     */
+    void flush();
+}
@@ -0,0 +1,19 @@
+package io.volar.log;
+
+
+import io.volar.util.LOG;
+
+/**
+ * Write the logs to logcat by {@link LOG}, long messages are split as logcat truncates them
+ */
+
+public final class LogcatSink implements LogSink {
+    @Override
+    public void write(long time, int priority, String tag, String message) {
+        LOG.println(priority, tag, message);
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,129 @@
+package io.volar.log;
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Write the logs to name.log in the directory, when it grows beyond the max size it is
+ * renamed to name.1.log, the older ones shift to name.2.log ... and the oldest is deleted
+ */
+
+public final class RotatingFileSink implements LogSink {
+    private static final char[] PRIORITIES = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    private final File directory;
+    private final String name;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final Date date = new Date();
+
+    private Writer writer;
+    private long fileSize;
+    private boolean truncate;
+    private boolean rotationFailureReported;
+
+    /**
+     * @param directory   directory of the log files
+     * @param name        name of the log files
+     * @param maxFileSize max size of a file, bytes
+     * @param maxFiles    max count of the files, including the current one
+     */
+    public RotatingFileSink(File directory, String name, long maxFileSize, int maxFiles) {
+        this.directory = directory;
+        this.name = name;
+        this.maxFileSize = Math.max(1, maxFileSize);
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    @Override
+    public void write(long time, int priority, String tag, String message) {
+        try {
+            if (writer == null) {
+                open();
+            }
+            date.setTime(time);
+            String line = dateFormat.format(date) + ' '
+                    + PRIORITIES[priority < PRIORITIES.length ? priority : 0] + '/' + tag + ": " + message + '\n';
+            writer.write(line);
+            // chars, close enough to bytes to decide the rotation
+            fileSize += line.length();
+            if (fileSize >= maxFileSize) {
+                rotate();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            close();
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+                close();
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("can't create " + directory);
+        }
+        File file = file(0);
+        fileSize = truncate ? 0 : file.length();
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, !truncate), Charset.forName("UTF-8")));
+        truncate = false;
+    }
+
+    /**
+     * Shift the files, if the current file can't be moved away it is truncated instead,
+     * so that not every write tries to rotate again
+     */
+    private void rotate() {
+        close();
+        File oldest = file(maxFiles - 1);
+        if (!oldest.exists() || oldest.delete()) {
+            for (int i = maxFiles - 2; i >= 0; i--) {
+                File file = file(i);
+                if (file.exists()) {
+                    file.renameTo(file(i + 1));
+                }
+            }
+        }
+        if (file(0).exists()) {
+            truncate = true;
+            if (!rotationFailureReported) {
+                rotationFailureReported = true;
+                new IOException("can't rotate " + file(0) + ", truncating it").printStackTrace();
+            }
+        }
+    }
+
+    private void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignore) {
+            }
+            writer = null;
+        }
+    }
+
+    private File file(int index) {
+        return new File(directory, index == 0 ? name + ".log" : name + "." + index + ".log");
+    }
+}
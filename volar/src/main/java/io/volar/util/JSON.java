@@ -3,17 +3,21 @@ package io.volar.util;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.volar.converter.GeneratedAdapterFactory;
+
 /**
  * Created by LiShen on 2018/4/2.
  * Fake fastjson with Gson
@@ -30,9 +34,19 @@ public class JSON {
                     return new JsonPrimitive(src);
                 }
             })
+            .registerTypeAdapterFactory(new GeneratedAdapterFactory())
             .disableHtmlEscaping()
             .create();
 
+    /**
+     * The Gson used by volar
+     *
+     * @return gson
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
     public static String toJSONString(Object obj) {
         try {
             return GSON.toJson(obj);
@@ -51,16 +65,66 @@ public class JSON {
         }
     }
 
+    /**
+     * Parse object from a character stream, the reader is not closed
+     *
+     * @param reader reader
+     * @param clazz  class
+     * @return object
+     */
+    public static <T> T parseObject(Reader reader, Class<T> clazz) {
+        try {
+            return GSON.fromJson(reader, clazz);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     public static <T> T[] parseArray(String json, Class<T> clazz) {
+        return parseArray(new StringReader(json), clazz);
+    }
+
+    /**
+     * Parse array from a character stream, the reader is not closed
+     *
+     * @param reader reader
+     * @param clazz  class
+     * @return array
+     */
+    public static <T> T[] parseArray(Reader reader, Class<T> clazz) {
+        List<T> list = parseList(reader, clazz);
+        if (list == null) {
+            return null;
+        }
+        T[] ts = (T[]) Array.newInstance(clazz, list.size());
+        return list.toArray(ts);
+    }
+
+    public static <T> List<T> parseList(String json, Class<T> clazz) {
+        return parseList(new StringReader(json), clazz);
+    }
+
+    /**
+     * Parse list from a character stream in one pass, each element is decoded
+     * straight into the class, the reader is not closed
+     *
+     * @param reader reader
+     * @param clazz  element class
+     * @return list
+     */
+    public static <T> List<T> parseList(Reader reader, Class<T> clazz) {
         try {
-            JsonObject[] jsonObjects = GSON.fromJson(json, new TypeToken<JsonObject[]>() {
-            }.getType());
+            TypeAdapter<T> adapter = GSON.getAdapter(clazz);
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.setLenient(true);
             List<T> list = new ArrayList<>();
-            for (JsonObject jsonObject : jsonObjects) {
-                list.add(GSON.fromJson(jsonObject, clazz));
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                list.add(adapter.read(jsonReader));
             }
-            T[] ts = (T[]) Array.newInstance(clazz, list.size());
-            return list.toArray(ts);
+            jsonReader.endArray();
+            return list;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -8,78 +8,38 @@ public class LOG {
     private static final int LOG_MAX_SHOWN_LENGTH = 3000;
 
     public static void v(String tag, String msg) {
-        if (!TextUtils.isEmpty(tag) && !TextUtils.isEmpty(msg)) {
-            String[] logs = handleLogContent(msg);
-            for (String log : logs) {
-                if (!TextUtils.isEmpty(log)) {
-                    Log.v(tag, log);
-                }
-            }
-        }
+        println(Log.VERBOSE, tag, msg);
     }
 
     public static void i(String tag, String msg) {
-        if (!TextUtils.isEmpty(tag) && !TextUtils.isEmpty(msg)) {
-            String[] logs = handleLogContent(msg);
-            for (String log : logs) {
-                if (!TextUtils.isEmpty(log)) {
-                    Log.i(tag, log);
-                }
-            }
-        }
+        println(Log.INFO, tag, msg);
     }
 
     public static void d(String tag, String msg) {
-        if (!TextUtils.isEmpty(tag) && !TextUtils.isEmpty(msg)) {
-            String[] logs = handleLogContent(msg);
-            for (String log : logs) {
-                if (!TextUtils.isEmpty(log)) {
-                    Log.d(tag, log);
-                }
-            }
-        }
+        println(Log.DEBUG, tag, msg);
     }
 
     public static void w(String tag, String msg) {
-        if (!TextUtils.isEmpty(tag) && !TextUtils.isEmpty(msg)) {
-            String[] logs = handleLogContent(msg);
-            for (String log : logs) {
-                if (!TextUtils.isEmpty(log)) {
-                    Log.w(tag, log);
-                }
-            }
-        }
+        println(Log.WARN, tag, msg);
     }
 
     public static void e(String tag, String msg) {
-        if (!TextUtils.isEmpty(tag) && !TextUtils.isEmpty(msg)) {
-            String[] logs = handleLogContent(msg);
-            for (String log : logs) {
-                if (!TextUtils.isEmpty(log)) {
-                    Log.e(tag, log);
-                }
-            }
-        }
+        println(Log.ERROR, tag, msg);
     }
 
-    private static String[] handleLogContent(String log) {
-        String[] logs;
-        if (log.length() <= LOG_MAX_SHOWN_LENGTH) {
-            logs = new String[]{log};
-        } else {
-            int sections = (log.length() / LOG_MAX_SHOWN_LENGTH);
-            if (log.length() % LOG_MAX_SHOWN_LENGTH != 0) {
-                sections += 1;
-            }
-            logs = new String[sections];
-            for (int i = 0; i < logs.length; i++) {
-                int end = ((i + 1) * LOG_MAX_SHOWN_LENGTH);
-                if (end > log.length()) {
-                    end = log.length();
-                }
-                logs[i] = log.substring(i * LOG_MAX_SHOWN_LENGTH, end);
+    /**
+     * Log with the priority, long messages are split as logcat truncates them
+     *
+     * @param priority priority, e.g. {@link Log#DEBUG}
+     * @param tag      tag
+     * @param msg      message
+     */
+    public static void println(int priority, String tag, String msg) {
+        if (!TextUtils.isEmpty(tag) && !TextUtils.isEmpty(msg)) {
+            int length = msg.length();
+            for (int start = 0; start < length; start += LOG_MAX_SHOWN_LENGTH) {
+                Log.println(priority, tag, msg.substring(start, Math.min(length, start + LOG_MAX_SHOWN_LENGTH)));
             }
         }
-        return logs;
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package io.volar;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.zip.Inflater;
+
+import io.volar.configuration.RequestCompression;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedRequestBodyTest {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final MediaType TEXT = MediaType.parse("text/plain; charset=utf-8");
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    @Test
+    public void gzipRoundTrip() throws IOException {
+        String content = repeat("{\"name\":\"volar\"},", 200);
+        RequestBody body = CompressedRequestBody.wrap(RequestBody.create(JSON, content), RequestCompression.gzip(1024));
+        CompressedRequestBody compressed = (CompressedRequestBody) body;
+        assertEquals(RequestCompression.GZIP, compressed.getEncoding());
+        assertEquals(-1, compressed.contentLength());
+
+        Buffer sink = new Buffer();
+        compressed.writeTo(sink);
+        assertEquals(content.length(), compressed.getOriginalLength());
+        assertEquals(sink.size(), compressed.getCompressedLength());
+        assertTrue(compressed.getCompressedLength() < compressed.getOriginalLength());
+        assertEquals(content, Okio.buffer(new GzipSource(sink)).readUtf8());
+    }
+
+    @Test
+    public void deflateRoundTrip() throws IOException {
+        String content = repeat("volar ", 500);
+        RequestBody body = CompressedRequestBody.wrap(RequestBody.create(TEXT, content), RequestCompression.deflate(1024));
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        // written twice on retry, the same bytes
+        Buffer again = new Buffer();
+        body.writeTo(again);
+        assertEquals(sink.snapshot(), again.snapshot());
+        assertEquals(content, Okio.buffer(new InflaterSource(sink, new Inflater())).readUtf8());
+    }
+
+    @Test
+    public void keepsShortAndBinaryBodies() {
+        RequestBody shortBody = RequestBody.create(JSON, "{}");
+        assertSame(shortBody, CompressedRequestBody.wrap(shortBody, RequestCompression.gzip(1024)));
+        RequestBody binaryBody = RequestBody.create(OCTET_STREAM, new byte[4096]);
+        assertSame(binaryBody, CompressedRequestBody.wrap(binaryBody, RequestCompression.gzip(1024)));
+        RequestBody textBody = RequestBody.create(TEXT, repeat("a", 4096));
+        assertSame(textBody, CompressedRequestBody.wrap(textBody, RequestCompression.NONE));
+        assertSame(textBody, CompressedRequestBody.wrap(textBody, null));
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package io.volar;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HttpResponseTest {
+
+    @Test
+    public void copiesDecodeOnce() {
+        CountingDecoder decoder = new CountingDecoder("data", 0);
+        HttpResponse<String> original = successResponse(decoder);
+        HttpResponse<String> cached = original.copy();
+        HttpResponse<String> follower = original.copy();
+        // copying doesn't decode
+        assertEquals(0, decoder.count);
+
+        assertEquals("data", follower.getResponseData());
+        assertEquals("data", original.getResponseData());
+        assertEquals("data", cached.copy().getResponseData());
+        assertEquals(1, decoder.count);
+    }
+
+    @Test
+    public void copiesShareEnvelopeResult() {
+        CountingDecoder decoder = new CountingDecoder(null, 500);
+        HttpResponse<String> original = successResponse(decoder);
+        HttpResponse<String> cached = original.copy();
+        assertFalse(cached.isLazyDataFailed());
+
+        assertNull(original.getResponseData());
+        assertFalse(original.success);
+        assertEquals(500, original.code);
+        assertTrue(cached.isLazyDataFailed());
+
+        assertNull(cached.getResponseData());
+        assertFalse(cached.success);
+        assertEquals(500, cached.code);
+        assertEquals("failed", cached.message);
+        assertEquals(1, decoder.count);
+    }
+
+    @Test
+    public void failedCopyDoesNotDecode() {
+        CountingDecoder decoder = new CountingDecoder("data", 0);
+        HttpResponse<String> original = successResponse(decoder);
+        HttpResponse<String> canceled = original.copy();
+        canceled.canceled = true;
+        canceled.success = false;
+        assertNull(canceled.getResponseData());
+        assertEquals(0, decoder.count);
+        assertEquals("data", original.getResponseData());
+    }
+
+    @Test
+    public void setResponseDataDropsDecoder() {
+        CountingDecoder decoder = new CountingDecoder("data", 0);
+        HttpResponse<String> response = successResponse(decoder);
+        response.setResponseData("replaced");
+        assertEquals("replaced", response.getResponseData());
+        assertEquals(0, decoder.count);
+    }
+
+    private static HttpResponse<String> successResponse(HttpResponse.DataDecoder<String> decoder) {
+        HttpResponse<String> response = new HttpResponse<>();
+        response.success = true;
+        response.code = HttpConstant.Code.SUCCESS;
+        response.setDataDecoder(decoder);
+        return response;
+    }
+
+    /**
+     * Decodes the data, a non zero envelope code turns the response into a failure
+     */
+    private static final class CountingDecoder implements HttpResponse.DataDecoder<String> {
+        private final String data;
+        private final int code;
+        private int count;
+
+        private CountingDecoder(String data, int code) {
+            this.data = data;
+            this.code = code;
+        }
+
+        @Override
+        public String decode(HttpResponse<String> httpResponse) {
+            count++;
+            if (code != 0) {
+                httpResponse.success = false;
+                httpResponse.code = code;
+                httpResponse.message = "failed";
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.volar;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.volar.configuration.RequestCompression;
+import io.volar.converter.Converter;
+import io.volar.converter.GsonConverter;
+import io.volar.util.JSON;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.GzipSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonRequestBodyTest {
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    @Test
+    public void serializesOncePerWrite() throws IOException {
+        CountingConverter converter = new CountingConverter();
+        JsonRequestBody body = new JsonRequestBody(JSON_TYPE, largeMap(), converter);
+        assertEquals(-1, body.contentLength());
+        RequestBody compressed = CompressedRequestBody.wrap(body, RequestCompression.gzip(1024));
+        assertEquals(0, converter.count);
+        compressed.writeTo(new Buffer());
+        assertEquals(1, converter.count);
+        // written again on retry
+        compressed.writeTo(new Buffer());
+        assertEquals(2, converter.count);
+    }
+
+    @Test
+    public void appliesGsonSettings() throws IOException {
+        GsonConverter converter = GsonConverter.create(new GsonBuilder().serializeNulls().create());
+        JsonRequestBody body = new JsonRequestBody(JSON_TYPE, new Model(null), converter);
+        assertEquals("{\"a\":null}", write(body));
+    }
+
+    @Test
+    public void longBodyIsStreamed() throws IOException {
+        Map<String, Object> value = largeMap();
+        JsonRequestBody body = new JsonRequestBody(JSON_TYPE, value, GsonConverter.create());
+        assertEquals(JSON.toJSONString(value), write(body));
+    }
+
+    @Test
+    public void compressed() throws IOException {
+        RequestCompression compression = RequestCompression.gzip(1024);
+        Map<String, Object> value = largeMap();
+        JsonRequestBody longBody = new JsonRequestBody(JSON_TYPE, value, GsonConverter.create());
+        RequestBody compressed = CompressedRequestBody.wrap(longBody, compression);
+        assertTrue(compressed instanceof CompressedRequestBody);
+        Buffer sink = new Buffer();
+        compressed.writeTo(sink);
+        assertEquals(JSON.toJSONString(value), Okio.buffer(new GzipSource(sink)).readUtf8());
+    }
+
+    private static String write(RequestBody body) throws IOException {
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        return sink.readUtf8();
+    }
+
+    private static Map<String, Object> largeMap() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            value.put("key" + i, "value" + i);
+        }
+        return value;
+    }
+
+    /**
+     * Counts the serializations
+     */
+    private static final class CountingConverter implements Converter {
+        private final Converter converter = GsonConverter.create();
+        private int count;
+
+        @Override
+        public String toJson(Object value) {
+            count++;
+            return converter.toJson(value);
+        }
+
+        @Override
+        public void toJson(Object value, JsonWriter writer) throws IOException {
+            count++;
+            converter.toJson(value, writer);
+        }
+
+        @Override
+        public <T> T fromJson(JsonReader reader, Class<T> clazz) throws IOException {
+            return converter.fromJson(reader, clazz);
+        }
+    }
+
+    static final class Model {
+        String a;
+
+        Model(String a) {
+            this.a = a;
+        }
+    }
+}
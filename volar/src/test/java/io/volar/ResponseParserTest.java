@@ -0,0 +1,111 @@
+package io.volar;
+
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+import io.volar.configuration.EnvelopeFilter;
+import io.volar.converter.GsonConverter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseParserTest {
+
+    @Test
+    public void successEnvelope() throws IOException {
+        HttpResponse<Item> httpResponse = successResponse();
+        Item item = objectParser().readData(new StringReader("{\"code\":0,\"msg\":\"ok\",\"data\":{\"id\":7}}"), httpResponse);
+        assertEquals(7, item.id);
+        assertTrue(httpResponse.success);
+        assertEquals("ok", httpResponse.message);
+    }
+
+    @Test
+    public void failureEnvelopeKeepsItsCode() throws IOException {
+        HttpResponse<Item> httpResponse = successResponse();
+        Item item = objectParser().readData(new StringReader("{\"code\":500,\"msg\":\"x\",\"data\":\"\"}"), httpResponse);
+        assertNull(item);
+        assertFalse(httpResponse.success);
+        assertEquals(500, httpResponse.code);
+        assertEquals("x", httpResponse.message);
+        assertNotNull(httpResponse.exception);
+    }
+
+    @Test
+    public void brokenDataOfSuccessEnvelope() throws IOException {
+        HttpResponse<Item> httpResponse = successResponse();
+        objectParser().readData(new StringReader("{\"code\":0,\"data\":\"\",\"msg\":\"ok\"}"), httpResponse);
+        assertFalse(httpResponse.success);
+        assertEquals(HttpConstant.Code.DATA_PARSE_FAILURE, httpResponse.code);
+    }
+
+    @Test
+    public void objectList() throws IOException {
+        ResponseParser<Item[]> parser = new ResponseParser<>(HttpConstant.ParseType.PARSE_TYPE_OBJECT_LIST,
+                Item.class, GsonConverter.create(), new CodeEnvelopeFilter());
+        HttpResponse<Item[]> httpResponse = new HttpResponse<>();
+        httpResponse.success = true;
+        Item[] items = parser.readData(new StringReader("{\"data\":[{\"id\":1},{\"id\":2}],\"code\":0}"), httpResponse);
+        assertEquals(2, items.length);
+        assertEquals(2, items[1].id);
+        assertTrue(httpResponse.success);
+    }
+
+    @Test
+    public void lazyDecoder() throws Exception {
+        HttpResponse<Item> httpResponse = successResponse();
+        HttpResponse.DataDecoder<Item> decoder = objectParser().decoder("{\"code\":0,\"data\":{\"id\":3}}".getBytes("UTF-8"),
+                Charset.forName("UTF-8"));
+        assertEquals(3, decoder.decode(httpResponse).id);
+    }
+
+    private static ResponseParser<Item> objectParser() {
+        return new ResponseParser<>(HttpConstant.ParseType.PARSE_TYPE_OBJECT,
+                Item.class, GsonConverter.create(), new CodeEnvelopeFilter());
+    }
+
+    private static HttpResponse<Item> successResponse() {
+        HttpResponse<Item> httpResponse = new HttpResponse<>();
+        httpResponse.success = true;
+        httpResponse.code = HttpConstant.Code.SUCCESS;
+        return httpResponse;
+    }
+
+    /**
+     * {"code": 0, "msg": "ok", "data": {...}}, code 0 is success
+     */
+    static final class CodeEnvelopeFilter implements EnvelopeFilter {
+        @Override
+        public String dataName() {
+            return "data";
+        }
+
+        @Override
+        public void readField(HttpResponse httpResponse, String name, JsonReader reader) throws IOException {
+            if ("code".equals(name)) {
+                httpResponse.code = reader.nextInt();
+            } else if ("msg".equals(name)) {
+                httpResponse.message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        @Override
+        public void filter(HttpResponse httpResponse) {
+            httpResponse.success = httpResponse.code == 0;
+        }
+    }
+
+    static final class Item {
+        int id;
+    }
+}
@@ -0,0 +1,123 @@
+package io.volar;
+
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map;
+
+import io.volar.util.arraymap.VolarArrayMap;
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * GET url building with {@link HttpUrl.Builder} on a cached base url against the string
+ * concatenation OkHttp parses again, on params maps of 5, 50 and 500 entries.
+ * The built urls must be equal, the timings are measured and printed only with -Dvolar.benchmark=true
+ */
+public class UrlBuildingBenchmarkTest {
+    private static final String URL = "https://api.example.com/v1/items";
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int ROUNDS = 2000;
+
+    @Test
+    public void compare() {
+        for (int size : new int[]{5, 50, 500}) {
+            compare(size);
+        }
+    }
+
+    @Test
+    public void appendToExistingQuery() {
+        HttpParams params = new HttpParams();
+        params.put("b", "2");
+        HttpUrl httpUrl = params.generateHttpUrlWithParams(HttpUrl.parse(URL + "?a=1"));
+        assertEquals(URL + "?a=1&b=2", httpUrl.toString());
+    }
+
+    @Test
+    public void baseUrlCache() {
+        BaseUrlCache cache = new BaseUrlCache(2);
+        HttpUrl httpUrl = cache.get(URL);
+        assertSame(httpUrl, cache.get(URL));
+        assertEquals(null, cache.get("not a url"));
+        cache.get(URL + "/1");
+        cache.get(URL + "/2");
+        // evicted, parsed again
+        assertNotSame(httpUrl, cache.get(URL));
+    }
+
+    private static void compare(int size) {
+        HttpParams params = new HttpParams();
+        VolarArrayMap<String, Object> paramsMap = new VolarArrayMap<>();
+        for (int i = 0; i < size; i++) {
+            params.put("key" + i, "value\u00e9" + i);
+            paramsMap.put("key" + i, "value\u00e9" + i);
+        }
+        BaseUrlCache baseUrlCache = new BaseUrlCache(HttpConstant.DEFAULT_BASE_URL_CACHE_SIZE);
+
+        HttpUrl expected = HttpUrl.parse(generateUrlWithParams(paramsMap, URL));
+        assertEquals(expected, HttpUrl.parse(params.generateUrlWithParams(URL)));
+        assertEquals(expected, params.generateHttpUrlWithParams(baseUrlCache.get(URL)));
+        if (!Boolean.getBoolean("volar.benchmark")) {
+            return;
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            HttpUrl.parse(generateUrlWithParams(paramsMap, URL));
+            HttpUrl.parse(params.generateUrlWithParams(URL));
+            params.generateHttpUrlWithParams(baseUrlCache.get(URL));
+        }
+        long concatenation = 0;
+        long indexed = 0;
+        long builder = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            HttpUrl.parse(generateUrlWithParams(paramsMap, URL));
+            concatenation += System.nanoTime() - start;
+            start = System.nanoTime();
+            HttpUrl.parse(params.generateUrlWithParams(URL));
+            indexed += System.nanoTime() - start;
+            start = System.nanoTime();
+            params.generateHttpUrlWithParams(baseUrlCache.get(URL));
+            builder += System.nanoTime() - start;
+        }
+        System.out.println(String.format("%d params: concatenation %.1f us, indexed concatenation %.1f us, HttpUrl.Builder %.1f us",
+                size, concatenation / 1e3 / ROUNDS, indexed / 1e3 / ROUNDS, builder / 1e3 / ROUNDS));
+    }
+
+    /**
+     * The former implementation, keySet() and get(key) per param
+     */
+    private static String generateUrlWithParams(VolarArrayMap<String, Object> paramsMap, String url) {
+        if (paramsMap.size() == 0) {
+            return url;
+        }
+        StringBuilder paramsUrl = new StringBuilder("?");
+        String key;
+        Object value;
+        String valueStr;
+        for (int i = 0; i < paramsMap.keySet().size(); i++) {
+            key = paramsMap.keyAt(i);
+            value = paramsMap.get(key);
+            if (value != null && !(value instanceof Map) && !(value instanceof List)) {
+                valueStr = String.valueOf(value);
+                try {
+                    key = URLEncoder.encode(key, "utf-8");
+                    value = URLEncoder.encode(valueStr, "utf-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new AssertionError(e);
+                }
+                paramsUrl.append(key).append("=").append(value);
+                if (i != paramsMap.size() - 1) {
+                    paramsUrl.append("&");
+                }
+            }
+        }
+        return url + paramsUrl.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package io.volar;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.volar.configuration.VolarConfiguration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkExecutorTest {
+
+    @Test
+    public void fullQueueDropsLowestPriority() throws InterruptedException {
+        WorkExecutor executor = new WorkExecutor(new VolarConfiguration.Builder()
+                .workerPoolSize(1)
+                .workerQueueSize(2)
+                .build());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                await(release);
+            }
+        }, HttpConstant.Priority.NORMAL, null);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+        List<String> rejected = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(4);
+        executor.execute(task("low1", ran, done), HttpConstant.Priority.LOW, task("low1", rejected, done));
+        executor.execute(task("low2", ran, done), HttpConstant.Priority.LOW, task("low2", rejected, done));
+        // full, drops the latest of the lowest priority
+        executor.execute(task("high", ran, done), HttpConstant.Priority.HIGH, task("high", rejected, done));
+        assertEquals(Collections.singletonList("low2"), rejected);
+        // full, nothing lower to drop
+        executor.execute(task("low3", ran, done), HttpConstant.Priority.LOW, task("low3", rejected, done));
+        assertEquals(2, rejected.size());
+        assertEquals("low3", rejected.get(1));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getStats().getRejectedCount());
+        assertEquals(Arrays.asList("high", "low1"), ran);
+    }
+
+    private static Runnable task(final String name, final List<String> names, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                names.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.volar.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void countsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(512);
+        assertEquals(0, sketch.frequency("a"));
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment("a");
+            assertEquals(Math.min(i, 15), sketch.frequency("a"));
+        }
+    }
+
+    @Test
+    public void agesByHalving() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+        // enough distinct keys to reach the sample size and halve the counters
+        for (int i = 0; i < 16 * 10; i++) {
+            sketch.increment("cold/" + i);
+        }
+        int frequency = sketch.frequency("hot");
+        assertTrue(frequency > 0 && frequency < 15);
+    }
+}
@@ -0,0 +1,90 @@
+package io.volar.cache;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryCacheTest {
+    private static final String KEY = "GET https://api.example.com/items?page=1";
+
+    @Test
+    public void getAndExpire() throws InterruptedException {
+        MemoryCache cache = new MemoryCache(10);
+        cache.put(KEY, "value", 10, -1);
+        assertEquals("value", cache.get(KEY));
+        Thread.sleep(20);
+        assertNull(cache.get(KEY));
+        // expired entries are still served to stale reads
+        assertEquals("value", cache.getStale(KEY));
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    public void ignoresInvalidPuts() {
+        MemoryCache cache = new MemoryCache(10);
+        cache.put(KEY, "value", 0, -1);
+        cache.put(KEY, null, 1000, -1);
+        cache.put(null, "value", 1000, -1);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.putCount());
+    }
+
+    @Test
+    public void bodyLengthWeigher() {
+        MemoryCache cache = new MemoryCache(1000, MemoryCache.BODY_LENGTH_WEIGHER);
+        cache.put(KEY, "value", 1000, 400);
+        assertEquals(400, cache.weight());
+        // heavier than the whole cache, never stored
+        cache.put("GET https://api.example.com/huge", "value", 1000, 2000);
+        assertNull(cache.get("GET https://api.example.com/huge"));
+        for (int i = 0; i < 100; i++) {
+            cache.put("GET https://api.example.com/item/" + i, "value", 1000, 100);
+            assertTrue(cache.weight() <= cache.maxWeight());
+        }
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    public void endpointStats() {
+        MemoryCache cache = new MemoryCache(10);
+        cache.put(KEY, "value", 1000, -1);
+        cache.get(KEY);
+        cache.get("GET https://api.example.com/items?page=2");
+        cache.get("GET https://api.example.com/other\nAuthorization: x");
+        Map<String, EndpointStats.Counter> snapshot = cache.endpointStats().snapshot();
+        assertEquals(2, snapshot.size());
+        EndpointStats.Counter items = snapshot.get("GET https://api.example.com/items");
+        assertEquals(2, items.requestCount());
+        assertEquals(1, items.hitCount());
+        assertEquals(0.5, items.hitRatio(), 0);
+        assertEquals(1, snapshot.get("GET https://api.example.com/other").missCount());
+    }
+
+    @Test
+    public void popularEntriesSurviveScan() {
+        MemoryCache cache = new MemoryCache(100);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                String key = "GET https://api.example.com/hot/" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, "value", 60000, -1);
+                }
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put("GET https://api.example.com/feed?page=" + i, "value", 60000, -1);
+        }
+        int hits = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("GET https://api.example.com/hot/" + i) != null) {
+                hits++;
+            }
+        }
+        assertTrue(hits >= 45);
+    }
+}
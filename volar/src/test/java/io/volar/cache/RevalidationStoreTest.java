@@ -0,0 +1,55 @@
+package io.volar.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RevalidationStoreTest {
+    private static final String KEY = "GET https://api.example.com/profile?id=1";
+
+    @Test
+    public void storesValidators() {
+        RevalidationStore store = new RevalidationStore(10);
+        store.put(KEY, "\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT", "value");
+        RevalidationStore.Entry entry = store.get(KEY);
+        assertEquals("\"v1\"", entry.getETag());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", entry.getLastModified());
+        assertEquals("value", entry.getValue());
+        assertEquals(1, store.requestCount());
+    }
+
+    @Test
+    public void dropsEntryWithoutValidators() {
+        RevalidationStore store = new RevalidationStore(10);
+        store.put(KEY, "\"v1\"", null, "value");
+        store.put(KEY, null, null, "changed");
+        assertNull(store.get(KEY));
+        assertEquals(0, store.size());
+        assertEquals(0, store.requestCount());
+    }
+
+    @Test
+    public void notModifiedIsHit() {
+        RevalidationStore store = new RevalidationStore(10);
+        store.put(KEY, "\"v1\"", null, "value");
+        store.get(KEY);
+        store.notModified(KEY);
+        store.get("GET https://api.example.com/profile?id=2");
+        assertEquals(1, store.notModifiedCount());
+        EndpointStats.Counter counter = store.endpointStats().snapshot().get("GET https://api.example.com/profile");
+        assertEquals(2, counter.requestCount());
+        assertEquals(1, counter.hitCount());
+    }
+
+    @Test
+    public void boundedByMaxEntries() {
+        RevalidationStore store = new RevalidationStore(20);
+        for (int i = 0; i < 100; i++) {
+            store.put("GET https://api.example.com/item/" + i, "\"v\"", null, "value");
+        }
+        assertEquals(20, store.maxEntries());
+        assertEquals(20, store.size());
+        assertEquals(80, store.evictionCount());
+    }
+}
@@ -0,0 +1,166 @@
+package io.volar.cache;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replay access traces against window TinyLFU and a plain LRU of the same size and compare
+ * the hit ratios. The synthetic traces are seeded, a recorded trace with one key per line
+ * can be replayed with -Dvolar.trace=path
+ */
+public class TraceReplayTest {
+    private static final int CACHE_SIZE = 500;
+    private static final int KEY_SPACE = 20000;
+    private static final long SEED = 42;
+
+    @Test
+    public void zipf() {
+        List<String> trace = zipfTrace(new Random(SEED), 200000, KEY_SPACE, 0.9);
+        double tinyLfu = replayTinyLfu(trace);
+        double lru = replayLru(trace);
+        report("zipf", tinyLfu, lru);
+        assertTrue(tinyLfu >= lru);
+    }
+
+    @Test
+    public void zipfWithScan() {
+        Random random = new Random(SEED);
+        // popular requests interleaved with a one pass scan, like a paged list crawled once
+        List<String> trace = new ArrayList<>();
+        List<String> popular = zipfTrace(random, 100000, KEY_SPACE, 0.9);
+        int scan = 0;
+        for (String key : popular) {
+            trace.add(key);
+            if (random.nextInt(3) > 0) {
+                trace.add("scan/" + scan++);
+            }
+        }
+        double tinyLfu = replayTinyLfu(trace);
+        double lru = replayLru(trace);
+        report("zipf+scan", tinyLfu, lru);
+        assertTrue(tinyLfu > lru * 1.5);
+    }
+
+    @Test
+    public void loop() {
+        // a loop slightly larger than the cache, every LRU lookup misses
+        List<String> trace = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < CACHE_SIZE + CACHE_SIZE / 10; j++) {
+                trace.add("loop/" + j);
+            }
+        }
+        double tinyLfu = replayTinyLfu(trace);
+        double lru = replayLru(trace);
+        report("loop", tinyLfu, lru);
+        assertEquals(0, lru, 0);
+        assertTrue(tinyLfu > 0.5);
+    }
+
+    @Test
+    public void recordedTrace() throws IOException {
+        String path = System.getProperty("volar.trace");
+        if (path == null) {
+            return;
+        }
+        List<String> trace = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    trace.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        report(path, replayTinyLfu(trace), replayLru(trace));
+    }
+
+    @Test
+    public void weightBound() {
+        WindowTinyLfu<String> cache = new WindowTinyLfu<>(CACHE_SIZE, CACHE_SIZE);
+        Random random = new Random(SEED);
+        for (int i = 0; i < 10000; i++) {
+            cache.put("key/" + random.nextInt(KEY_SPACE), "value", 1 + random.nextInt(4));
+            assertTrue(cache.weight() <= CACHE_SIZE);
+        }
+        cache.put("huge", "value", CACHE_SIZE + 1);
+        assertEquals(null, cache.get("huge"));
+    }
+
+    private static double replayTinyLfu(List<String> trace) {
+        WindowTinyLfu<String> cache = new WindowTinyLfu<>(CACHE_SIZE, CACHE_SIZE);
+        int hits = 0;
+        for (String key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key, 1);
+            }
+        }
+        return (double) hits / trace.size();
+    }
+
+    private static double replayLru(List<String> trace) {
+        LinkedHashMap<String, String> cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        int hits = 0;
+        for (String key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return (double) hits / trace.size();
+    }
+
+    /**
+     * Keys drawn from a zipf distribution by inverting its cumulative probabilities
+     */
+    private static List<String> zipfTrace(Random random, int length, int keySpace, double exponent) {
+        double[] cumulative = new double[keySpace];
+        double sum = 0;
+        for (int i = 0; i < keySpace; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        List<String> trace = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            double value = random.nextDouble() * sum;
+            int low = 0;
+            int high = keySpace - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            trace.add("GET https://api.example.com/item/" + low);
+        }
+        return trace;
+    }
+
+    private static void report(String trace, double tinyLfu, double lru) {
+        System.out.println(String.format("%s: W-TinyLFU %.2f%%, LRU %.2f%%", trace, tinyLfu * 100, lru * 100));
+    }
+}
@@ -0,0 +1,50 @@
+package io.volar.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RotatingFileSinkTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rotates() throws IOException {
+        File directory = folder.newFolder();
+        RotatingFileSink sink = new RotatingFileSink(directory, "volar", 1024, 3);
+        for (int i = 0; i < 200; i++) {
+            sink.write(System.currentTimeMillis(), 3, "Volar", "message " + i);
+        }
+        sink.flush();
+        assertTrue(new File(directory, "volar.log").exists());
+        assertTrue(new File(directory, "volar.1.log").exists());
+        assertTrue(new File(directory, "volar.2.log").exists());
+        assertFalse(new File(directory, "volar.3.log").exists());
+        assertTrue(new File(directory, "volar.1.log").length() >= 1024);
+    }
+
+    @Test
+    public void truncatesWhenOldestCanNotBeDeleted() throws IOException {
+        File directory = folder.newFolder();
+        // a directory which is not empty can't be deleted
+        File oldest = new File(directory, "volar.1.log");
+        assertTrue(oldest.mkdir());
+        assertTrue(new File(oldest, "keep").createNewFile());
+
+        RotatingFileSink sink = new RotatingFileSink(directory, "volar", 1024, 2);
+        for (int i = 0; i < 1000; i++) {
+            sink.write(System.currentTimeMillis(), 3, "Volar", "message " + i);
+        }
+        sink.flush();
+        File live = new File(directory, "volar.log");
+        assertTrue(live.length() > 0);
+        assertTrue(live.length() < 1024);
+        assertTrue(oldest.isDirectory());
+    }
+}
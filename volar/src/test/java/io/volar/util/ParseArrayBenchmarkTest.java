@@ -0,0 +1,117 @@
+package io.volar.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Single pass {@link JSON#parseArray(String, Class)} against the former JsonObject[] tree decoding
+ * on a 10k element payload. The results must be equal, the timings are measured and printed
+ * only with -Dvolar.benchmark=true
+ */
+public class ParseArrayBenchmarkTest {
+    private static final int ELEMENTS = 10000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void parseArray() {
+        String json = payload(ELEMENTS);
+
+        Item[] expected = parseArrayTree(json, Item.class);
+        Item[] actual = JSON.parseArray(json, Item.class);
+        assertNotNull(actual);
+        assertEquals(ELEMENTS, actual.length);
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertItemEquals(expected[i], actual[i]);
+        }
+        assertEquals(ELEMENTS, JSON.parseList(json, Item.class).size());
+        if (!Boolean.getBoolean("volar.benchmark")) {
+            return;
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            parseArrayTree(json, Item.class);
+            JSON.parseArray(json, Item.class);
+            JSON.parseList(json, Item.class);
+        }
+        long tree = 0;
+        long array = 0;
+        long list = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            parseArrayTree(json, Item.class);
+            tree += System.nanoTime() - start;
+            start = System.nanoTime();
+            JSON.parseArray(json, Item.class);
+            array += System.nanoTime() - start;
+            start = System.nanoTime();
+            JSON.parseList(json, Item.class);
+            list += System.nanoTime() - start;
+        }
+        System.out.println(String.format("parse %d elements: tree %.2f ms, parseArray %.2f ms, parseList %.2f ms",
+                ELEMENTS, tree / 1e6 / ROUNDS, array / 1e6 / ROUNDS, list / 1e6 / ROUNDS));
+    }
+
+    @Test
+    public void primitives() {
+        Integer[] numbers = JSON.parseArray("[1, 2, 3]", Integer.class);
+        assertNotNull(numbers);
+        assertEquals(3, numbers.length);
+        assertEquals(Integer.valueOf(3), numbers[2]);
+    }
+
+    /**
+     * The former implementation, the whole payload as JsonObject trees first
+     */
+    private static <T> T[] parseArrayTree(String json, Class<T> clazz) {
+        JsonObject[] jsonObjects = JSON.getGson().fromJson(new StringReader(json), new TypeToken<JsonObject[]>() {
+        }.getType());
+        List<T> list = new ArrayList<>();
+        for (JsonObject jsonObject : jsonObjects) {
+            list.add(JSON.getGson().fromJson(jsonObject, clazz));
+        }
+        T[] ts = (T[]) Array.newInstance(clazz, list.size());
+        return list.toArray(ts);
+    }
+
+    private static String payload(int elements) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < elements; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i)
+                    .append(",\"name\":\"item ").append(i)
+                    .append("\",\"price\":").append(i * 0.25)
+                    .append(",\"available\":").append(i % 2 == 0)
+                    .append(",\"tags\":[\"a\",\"b\"]}");
+        }
+        return builder.append(']').toString();
+    }
+
+    private static void assertItemEquals(Item expected, Item actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.price, actual.price, 0);
+        assertEquals(expected.available, actual.available);
+        assertEquals(expected.tags, actual.tags);
+    }
+
+    static final class Item {
+        long id;
+        String name;
+        double price;
+        boolean available;
+        List<String> tags;
+    }
+}